@@ -92,6 +92,15 @@ public class AntClient {
         return instance.get();
     }
 
+    /**
+     * Binds the given Ant project to the current thread, typically a worker thread.
+     *
+     * @since 2.1.8
+     */
+    public static void setInstance(Project project) {
+        instance.set(project);
+    }
+
     /**
      * xmlns:nx="urn:nuxeo-build" xmlns:artifact="urn:nuxeo-artifact"
      *
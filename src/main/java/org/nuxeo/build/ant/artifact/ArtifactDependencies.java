@@ -32,7 +32,6 @@ import org.nuxeo.build.maven.ArtifactDescriptor;
 import org.nuxeo.build.maven.filter.AndFilter;
 import org.nuxeo.build.maven.filter.CompositeFilter;
 import org.nuxeo.build.maven.filter.Filter;
-import org.nuxeo.build.maven.graph.DependencyUtils;
 import org.nuxeo.build.maven.graph.Graph;
 import org.nuxeo.build.maven.graph.Node;
 
@@ -41,7 +40,10 @@ import org.nuxeo.build.maven.graph.Node;
  */
 public class ArtifactDependencies extends DataType implements ResourceCollection {
 
-    protected Graph graph = AntBuildMojo.getInstance().getGraph();
+    /**
+     * The graph is retrieved on first use, see {@link #getGraph()}.
+     */
+    protected Graph graph;
 
     protected Node node;
 
@@ -49,7 +51,7 @@ public class ArtifactDependencies extends DataType implements ResourceCollection
 
     public String key;
 
-    public int depth = 1;
+    public int depth = Integer.MAX_VALUE;
 
     public ArtifactDescriptor ad = new ArtifactDescriptor();
 
@@ -57,6 +59,10 @@ public class ArtifactDependencies extends DataType implements ResourceCollection
 
     public Excludes excludes;
 
+    /**
+     * @param depth depth of the selected dependencies: "1" for the direct ones only, "all" (default) for all of them;
+     *            the deeper artifacts are not resolved
+     */
     public void setDepth(String depth) {
         this.depth = Expand.readExpand(depth);
     }
@@ -96,9 +102,19 @@ public class ArtifactDependencies extends DataType implements ResourceCollection
         ad.setVersion(version);
     }
 
+    /**
+     * @since 2.1.8
+     */
+    protected Graph getGraph() {
+        if (graph == null) {
+            graph = AntBuildMojo.getInstance().getGraph();
+        }
+        return graph;
+    }
+
     public Node getNode() {
         if (node == null) {
-            node = graph.findNode(key, ad);
+            node = getGraph().findNode(key, ad);
         }
         return node;
     }
@@ -116,7 +132,7 @@ public class ArtifactDependencies extends DataType implements ResourceCollection
                 }
                 filter = CompositeFilter.compact(andf);
             }
-            DependencyResult result = DependencyUtils.resolveDependencies(getNode(), filter, depth);
+            DependencyResult result = AntBuildMojo.getInstance().getResolutionMemo().resolve(getNode(), filter, depth);
             List<ArtifactResult> results = result.getArtifactResults();
             artifacts = new ArrayList<>();
             for (ArtifactResult artifactResult : results) {
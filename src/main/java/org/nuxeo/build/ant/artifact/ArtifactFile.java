@@ -30,7 +30,10 @@ import org.nuxeo.build.maven.graph.Node;
  */
 public class ArtifactFile extends FileResource {
 
-    protected Graph graph = AntBuildMojo.getInstance().getGraph();
+    /**
+     * The graph is retrieved on first use, see {@link #getGraph()}.
+     */
+    protected Graph graph;
 
     protected Node node;
 
@@ -63,9 +66,19 @@ public class ArtifactFile extends FileResource {
         ad.setClassifier(classifier);
     }
 
+    /**
+     * @since 2.1.8
+     */
+    protected Graph getGraph() {
+        if (graph == null) {
+            graph = AntBuildMojo.getInstance().getGraph();
+        }
+        return graph;
+    }
+
     public Node getNode() {
         if (node == null) {
-            node = graph.findNode(key, ad);
+            node = getGraph().findNode(key, ad);
         }
         return node;
     }
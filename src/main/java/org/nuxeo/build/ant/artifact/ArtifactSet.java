@@ -52,8 +52,8 @@ import org.nuxeo.build.maven.filter.NotFilter;
 import org.nuxeo.build.maven.filter.ScopeFilter;
 import org.nuxeo.build.maven.filter.TypeFilter;
 import org.nuxeo.build.maven.filter.VersionFilter;
-import org.nuxeo.build.maven.graph.DependencyUtils;
 import org.nuxeo.build.maven.graph.Graph;
+import org.nuxeo.build.maven.graph.GraphRegistry;
 import org.nuxeo.build.maven.graph.Node;
 
 /**
@@ -83,6 +83,16 @@ public class ArtifactSet extends DataType implements ResourceCollection {
 
     public List<ResolveFile> resolveFiles;
 
+    /**
+     * @since 2.1.8
+     */
+    public boolean projectRoots = true;
+
+    /**
+     * @since 2.1.8
+     */
+    public boolean pushdown;
+
     public void setGroupId(String groupId) {
         if (isReference()) {
             throw tooManyAttributes();
@@ -190,6 +200,32 @@ public class ArtifactSet extends DataType implements ResourceCollection {
         }
     }
 
+    /**
+     * @param projectRoots whether the roots of the current graph are added to the set roots. Default is true. Set it to
+     *            false on a set having its own roots ("src", nested "file" or "resolveFile") to avoid building the
+     *            current graph. It is ignored on a set without own roots.
+     * @since 2.1.8
+     */
+    public void setProjectRoots(boolean projectRoots) {
+        if (isReference()) {
+            throw tooManyAttributes();
+        }
+        this.projectRoots = projectRoots;
+    }
+
+    /**
+     * @param pushdown whether the set filter is pushed down into the collection of the nested "resolveFile" artifacts:
+     *            the dependencies below an excluded ancestor are then not collected. Default is false.
+     * @see Graph#setCollectFilter(Filter)
+     * @since 2.1.8
+     */
+    public void setPushdown(boolean pushdown) {
+        if (isReference()) {
+            throw tooManyAttributes();
+        }
+        this.pushdown = pushdown;
+    }
+
     public void addExpand(@SuppressWarnings("hiding") Expand expand) {
         if (isReference()) {
             throw noChildrenAllowed();
@@ -279,27 +315,44 @@ public class ArtifactSet extends DataType implements ResourceCollection {
                 roots.add(arti.getNode());
             }
         }
+        Filter finalFilter = buildFilter();
+        int depth = Integer.MAX_VALUE;
+        if (expand != null) {
+            expand.filter.addFilter(finalFilter);
+            finalFilter = CompositeFilter.compact(expand.filter);
+            depth = expand.depth;
+        }
         if (resolveFiles != null) {
-            Graph graph = new Graph();
+            List<String> keys = new ArrayList<>();
             for (ResolveFile file : resolveFiles) {
-                roots.add(graph.addRootNode(file.getArtifactDescriptor().getDependency()));
+                keys.add(file.getArtifactDescriptor().toString());
+            }
+            String graphKey = StringUtils.join(keys, ',');
+            Filter collectFilter = pushdown ? finalFilter : null;
+            GraphRegistry registry = AntBuildMojo.getInstance().getGraphRegistry();
+            Graph graph = registry.get(graphKey, collectFilter, 0);
+            if (graph == null) {
+                graph = new Graph();
+                graph.setCollectFilter(collectFilter);
+                for (ResolveFile file : resolveFiles) {
+                    graph.addRootNode(file.getArtifactDescriptor().getDependency());
+                }
+                registry.put(graphKey, collectFilter, 0, graph);
             }
+            roots.addAll(graph.getRoots());
         }
         if (artifactSets != null) {
             for (ArtifactSet arti : artifactSets) {
                 resultArtifacts.addAll(arti.getArtifacts());
             }
         }
-        Filter finalFilter = buildFilter();
-        int depth = Integer.MAX_VALUE;
-        if (expand != null) {
-            expand.filter.addFilter(finalFilter);
-            finalFilter = CompositeFilter.compact(expand.filter);
-            depth = expand.depth;
+        boolean ownRoots = src != null || artifactFiles != null || resolveFiles != null;
+        if (projectRoots || !ownRoots) {
+            roots.addAll(AntBuildMojo.getInstance().getGraph(depth).getRoots());
         }
-        roots.addAll(AntBuildMojo.getInstance().getGraph().getRoots());
+        AntBuildMojo mojo = AntBuildMojo.getInstance();
         for (Node node : roots) {
-            DependencyResult result = DependencyUtils.resolveDependencies(node, finalFilter, depth);
+            DependencyResult result = mojo.getResolutionMemo().resolve(node, finalFilter, depth);
             for (ArtifactResult artifactResult : result.getArtifactResults()) {
                 resultArtifacts.add(artifactResult.getArtifact());
             }
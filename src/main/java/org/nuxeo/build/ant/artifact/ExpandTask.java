@@ -24,7 +24,9 @@ import org.eclipse.aether.graph.DependencyNode;
 import org.nuxeo.build.maven.AntBuildMojo;
 import org.nuxeo.build.maven.filter.AndFilter;
 import org.nuxeo.build.maven.filter.CompositeFilter;
+import org.nuxeo.build.maven.filter.Filter;
 import org.nuxeo.build.maven.graph.Graph;
+import org.nuxeo.build.maven.graph.GraphRegistry;
 import org.nuxeo.build.maven.graph.Node;
 
 /**
@@ -38,6 +40,47 @@ public class ExpandTask extends Task {
 
     public AndFilter filter = new AndFilter();
 
+    /**
+     * @since 2.1.8
+     */
+    public int threads;
+
+    /**
+     * @since 2.1.8
+     */
+    public String graphId;
+
+    /**
+     * @since 2.1.8
+     */
+    public String graphRef;
+
+    /**
+     * @since 2.1.8
+     */
+    public boolean pushdown;
+
+    /**
+     * @since 2.1.8
+     */
+    public Boolean collectOnly;
+
+    /**
+     * @param graphId ID under which the expanded graph is registered for the other tasks "graphref" attributes
+     * @since 2.1.8
+     */
+    public void setGraphid(String graphId) {
+        this.graphId = graphId;
+    }
+
+    /**
+     * @param graphRef ID of a registered graph to expand instead of the current or key graph
+     * @since 2.1.8
+     */
+    public void setGraphref(String graphRef) {
+        this.graphRef = graphRef;
+    }
+
     public void setKey(String key) {
         this.key = key;
     }
@@ -46,6 +89,33 @@ public class ExpandTask extends Task {
         this.depth = Expand.readExpand(depth);
     }
 
+    /**
+     * @param threads maximum number of roots resolved concurrently; defaults to the Mojo "resolveThreads" parameter
+     * @since 2.1.8
+     */
+    public void setThreads(int threads) {
+        this.threads = threads;
+    }
+
+    /**
+     * @param pushdown whether the filter is pushed down into the collection of the project graph when it is built: the
+     *            dependencies below an excluded ancestor are then not collected. Default is false.
+     * @see Graph#setCollectFilter(Filter)
+     * @since 2.1.8
+     */
+    public void setPushdown(boolean pushdown) {
+        this.pushdown = pushdown;
+    }
+
+    /**
+     * @param collectOnly whether the artifact files are left unresolved until first used; defaults to the Mojo
+     *            "collectOnly" parameter
+     * @since 2.1.8
+     */
+    public void setCollectonly(boolean collectOnly) {
+        this.collectOnly = collectOnly;
+    }
+
     public void addExcludes(Excludes excludes) {
         filter.addFilter(excludes.getFilter());
     }
@@ -62,15 +132,31 @@ public class ExpandTask extends Task {
     public void execute() throws BuildException {
         AntBuildMojo mojo = AntBuildMojo.getInstance();
         Graph graph;
-        if (key != null) {
-            graph = new Graph();
-            // TODO NXBT-258 mojo graph can be empty!
-            Collection<Node> nodes = mojo.getGraph().find(key);
-            addRootNodes(graph, nodes);
+        Filter compactFilter = CompositeFilter.compact(filter);
+        GraphRegistry registry = mojo.getGraphRegistry();
+        if (graphRef != null) {
+            graph = registry.get(graphRef);
+        } else if (key != null) {
+            // Whatever the filter and depth: the graph only resolves what its previous resolutions did not cover
+            String roots = "expand:" + key;
+            graph = registry.get(roots, null, 0);
+            if (graph == null) {
+                graph = new Graph();
+                // TODO NXBT-258 mojo graph can be empty!
+                Graph source = mojo.getGraph();
+                Collection<Node> nodes = source.find(key);
+                addRootNodes(graph, nodes);
+                registry.put(roots, null, 0, graph, source);
+            }
         } else {
-            graph = mojo.newGraph();
+            // Collected down to the leaves: the next tasks work on that graph, whatever their depth
+            graph = mojo.newGraph(Integer.MAX_VALUE, pushdown ? compactFilter : null);
+        }
+        graph.resolveDependencies(compactFilter, depth, threads > 0 ? threads : mojo.getResolveThreads(),
+                collectOnly != null ? collectOnly : mojo.isCollectOnly());
+        if (graphId != null) {
+            registry.register(graphId, graph);
         }
-        graph.resolveDependencies(CompositeFilter.compact(filter), depth);
     }
 
     public void addRootNodes(Graph graph,
@@ -0,0 +1,158 @@
+/*
+ * (C) Copyright 2017 Nuxeo SA (http://nuxeo.com/) and contributors.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser General Public License
+ * (LGPL) version 2.1 which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/lgpl-2.1.html
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ */
+package org.nuxeo.build.ant.artifact;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Properties;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.tools.ant.BuildException;
+import org.apache.tools.ant.Project;
+import org.apache.tools.ant.Task;
+import org.apache.tools.ant.types.PatternSet;
+
+import org.nuxeo.build.maven.AntBuildMojo;
+import org.nuxeo.build.maven.graph.GraphDiff;
+
+/**
+ * Compares the current graph (or the "to" snapshot) with a previous snapshot of the graph, then optionally saves the
+ * current graph as the next reference snapshot.
+ * <p>
+ * The differences are written in a properties file ("added", "removed", "version.changed", "scope.changed": comma
+ * separated node IDs) and/or as pattern sets on artifact file names: "patternsetid" selects the files to copy
+ * (added and upgraded nodes, nodes which scope changed), "removedpatternsetid" the obsolete files (removed nodes,
+ * previous versions).
+ *
+ * @since 2.1.8
+ */
+public class GraphDiffTask extends Task {
+
+    private File from;
+
+    private File to;
+
+    private File save;
+
+    private File propertyFile;
+
+    private String patternSetId;
+
+    private String removedPatternSetId;
+
+    @Override
+    public void execute() throws BuildException {
+        if (from == null) {
+            throw new BuildException("The from attribute is required");
+        }
+        GraphDiff diff;
+        try {
+            List<String> oldIds = GraphDiff.loadSnapshot(from);
+            List<String> newIds = to != null ? GraphDiff.loadSnapshot(to)
+                    : GraphDiff.getIds(AntBuildMojo.getInstance().getGraph());
+            diff = GraphDiff.compare(oldIds, newIds);
+            if (save != null) {
+                GraphDiff.saveSnapshot(AntBuildMojo.getInstance().getGraph(), save);
+            }
+        } catch (IOException e) {
+            throw new BuildException(e);
+        }
+        log("Graph changes since " + from + ": " + diff, Project.MSG_INFO);
+        if (propertyFile != null) {
+            writeProperties(diff);
+        }
+        if (patternSetId != null) {
+            List<String> ids = new ArrayList<>(diff.getAdded());
+            ids.addAll(diff.getVersionChanges().values());
+            ids.addAll(diff.getScopeChanges().values());
+            getProject().addReference(patternSetId, toPatternSet(ids));
+        }
+        if (removedPatternSetId != null) {
+            List<String> ids = new ArrayList<>(diff.getRemoved());
+            ids.addAll(diff.getVersionChanges().keySet());
+            getProject().addReference(removedPatternSetId, toPatternSet(ids));
+        }
+    }
+
+    private void writeProperties(GraphDiff diff) {
+        Properties properties = new Properties();
+        properties.setProperty("added", StringUtils.join(diff.getAdded(), ','));
+        properties.setProperty("removed", StringUtils.join(diff.getRemoved(), ','));
+        properties.setProperty("version.changed", StringUtils.join(diff.getVersionChanges().values(), ','));
+        properties.setProperty("scope.changed", StringUtils.join(diff.getScopeChanges().values(), ','));
+        File parent = propertyFile.getParentFile();
+        try {
+            if (parent != null) {
+                Files.createDirectories(parent.toPath());
+            }
+            try (OutputStream out = Files.newOutputStream(propertyFile.toPath())) {
+                properties.store(out, "Graph changes since " + from);
+            }
+        } catch (IOException e) {
+            throw new BuildException("Cannot write " + propertyFile, e);
+        }
+    }
+
+    private PatternSet toPatternSet(Collection<String> ids) {
+        PatternSet patternSet = new PatternSet();
+        patternSet.setProject(getProject());
+        if (ids.isEmpty()) {
+            // An empty pattern set would select everything
+            patternSet.createExclude().setName("**");
+        }
+        for (String id : ids) {
+            patternSet.createInclude().setName("**/" + GraphDiff.getFileName(id));
+        }
+        return patternSet;
+    }
+
+    /**
+     * @param from previous snapshot; a missing file is an empty graph
+     */
+    public void setFrom(File from) {
+        this.from = from;
+    }
+
+    /**
+     * @param to current snapshot, default to the current graph
+     */
+    public void setTo(File to) {
+        this.to = to;
+    }
+
+    /**
+     * @param save file where to save the current graph snapshot, after the comparison
+     */
+    public void setSave(File save) {
+        this.save = save;
+    }
+
+    public void setPropertyFile(File propertyFile) {
+        this.propertyFile = propertyFile;
+    }
+
+    public void setPatternsetid(String patternSetId) {
+        this.patternSetId = patternSetId;
+    }
+
+    public void setRemovedpatternsetid(String removedPatternSetId) {
+        this.removedPatternSetId = removedPatternSetId;
+    }
+
+}
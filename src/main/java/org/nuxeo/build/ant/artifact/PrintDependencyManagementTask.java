@@ -26,7 +26,7 @@ import org.eclipse.aether.graph.Dependency;
 import org.eclipse.aether.resolution.ArtifactDescriptorException;
 import org.eclipse.aether.resolution.ArtifactDescriptorRequest;
 import org.eclipse.aether.resolution.ArtifactDescriptorResult;
-import org.eclipse.aether.resolution.ArtifactResolutionException;
+import org.eclipse.aether.resolution.ArtifactResult;
 import org.eclipse.aether.util.StringUtils;
 import org.eclipse.aether.util.artifact.JavaScopes;
 
@@ -99,12 +99,22 @@ public class PrintDependencyManagementTask extends Task {
             request.setRepositories(mojo.getRemoteRepositories());
             ArtifactDescriptorResult result = mojo.getSystem().readArtifactDescriptor(mojo.getSession(), request);
             Throwable checks = new Throwable();
-            for (Dependency dependency : result.getManagedDependencies()) {
+            List<ArtifactResult> checkResults = null;
+            if (check) {
+                List<Artifact> artifacts = new ArrayList<>();
+                for (Dependency dependency : result.getManagedDependencies()) {
+                    artifacts.add(dependency.getArtifact());
+                }
+                checkResults = DependencyUtils.resolveAll(artifacts, mojo.getResolveThreads());
+            }
+            for (int i = 0; i < result.getManagedDependencies().size(); i++) {
+                Dependency dependency = result.getManagedDependencies().get(i);
                 if (check) {
-                    try {
-                        DependencyUtils.resolve(dependency.getArtifact());
-                    } catch (ArtifactResolutionException e) {
-                        checks.addSuppressed(e);
+                    ArtifactResult checkResult = checkResults.get(i);
+                    if (!checkResult.isResolved()) {
+                        for (Exception e : checkResult.getExceptions()) {
+                            checks.addSuppressed(e);
+                        }
                         String msg = "";
                         if (checkOutput == null) {
                             msg = "Cannot resolve ";
@@ -35,6 +35,7 @@ import org.nuxeo.build.maven.AntBuildMojo;
 import org.nuxeo.build.maven.filter.Filter;
 import org.nuxeo.build.maven.graph.FlatPrinterDependencyVisitor;
 import org.nuxeo.build.maven.graph.Graph;
+import org.nuxeo.build.maven.graph.GraphRegistry;
 import org.nuxeo.build.maven.graph.Node;
 import org.nuxeo.build.maven.graph.TreePrinterDependencyVisitor;
 
@@ -65,6 +66,8 @@ public class PrintGraphTask extends Task {
 
     private List<String> scopes = null;
 
+    private String graphRef;
+
     /**
      * In sdk mode, root nodes are not printed
      *
@@ -103,10 +106,18 @@ public class PrintGraphTask extends Task {
             // ExpandTask expandTask = new ExpandTask();
             // expandTask.setDepth("all");
             // expandTask.execute(AntBuildMojo.getInstance().newGraph(source));
-            roots = new ArrayList<>();
-            Graph graph = new Graph();
-            roots.add(graph.addRootNode(source));
-            graph.resolveDependencies(Filter.ANY, 0);
+            GraphRegistry registry = AntBuildMojo.getInstance().getGraphRegistry();
+            Graph graph = registry.get(source, Filter.ANY, Integer.MAX_VALUE);
+            if (graph == null) {
+                graph = new Graph();
+                graph.addRootNode(source);
+                // Printing only needs the coordinates, the files are resolved if used by the format
+                graph.resolveDependencies(Filter.ANY, Integer.MAX_VALUE, 1, true);
+                registry.put(source, Filter.ANY, Integer.MAX_VALUE, graph);
+            }
+            roots = new ArrayList<>(graph.getRoots());
+        } else if (graphRef != null) {
+            roots = AntBuildMojo.getInstance().getGraphRegistry().get(graphRef).getRoots();
         } else {
             roots = AntBuildMojo.getInstance().getGraph().getRoots();
         }
@@ -126,7 +137,7 @@ public class PrintGraphTask extends Task {
                     // Work on a clone to avoid graph being altered
                     CloningDependencyVisitor cdv = new CloningDependencyVisitor();
                     node.accept(cdv);
-                    cdv.getRootNode().accept(pdv);
+                    pdv.traverse(cdv.getRootNode());
                 }
             } else {
                 FlatPrinterDependencyVisitor pdv = new FlatPrinterDependencyVisitor(out, format, scopes);
@@ -134,7 +145,7 @@ public class PrintGraphTask extends Task {
                 pdv.addIgnores(roots);
                 for (Node node : roots) {
                     log("Visiting " + node, Project.MSG_DEBUG);
-                    node.accept(pdv);
+                    pdv.traverse(node);
                 }
                 pdv.print();
             }
@@ -189,6 +200,15 @@ public class PrintGraphTask extends Task {
         this.source = source;
     }
 
+    /**
+     * If set, print the graph registered with that ID (see {@link ExpandTask#setGraphid(String)})
+     *
+     * @since 2.1.8
+     */
+    public void setGraphref(String graphRef) {
+        this.graphRef = graphRef;
+    }
+
     /**
      * @since 1.10.2
      * @param scopes Comma separated list of scopes to include. Defaults to "compile,runtime,system".
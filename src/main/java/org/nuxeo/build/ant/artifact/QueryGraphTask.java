@@ -0,0 +1,160 @@
+/*
+ * (C) Copyright 2017 Nuxeo SA (http://nuxeo.com/) and contributors.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser General Public License
+ * (LGPL) version 2.1 which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/lgpl-2.1.html
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ */
+package org.nuxeo.build.ant.artifact;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.tools.ant.BuildException;
+import org.apache.tools.ant.Task;
+import org.codehaus.plexus.util.StringUtils;
+
+import org.nuxeo.build.maven.AntBuildMojo;
+import org.nuxeo.build.maven.graph.Graph;
+import org.nuxeo.build.maven.graph.GraphQuery;
+import org.nuxeo.build.maven.graph.Node;
+
+/**
+ * Queries the graph about a node and stores the answer in a property and/or a reference.
+ * <p>
+ * Query types:
+ * <ul>
+ * <li>"dependents": nodes directly depending on the node</li>
+ * <li>"allDependents": nodes depending directly or transitively on the node</li>
+ * <li>"path": shortest path from a root to the node</li>
+ * <li>"subtree": nodes reachable from the node</li>
+ * <li>"depth": shortest distance from a root, -1 if unreachable</li>
+ * <li>"inSubtree": "true" if the node is reachable from the "ancestor" node</li>
+ * </ul>
+ * List answers are stored in the property as comma separated node IDs and in the reference as a list of
+ * {@link Node}.
+ *
+ * @since 2.1.8
+ */
+public class QueryGraphTask extends Task {
+
+    public static final String DEPENDENTS = "dependents";
+
+    public static final String ALL_DEPENDENTS = "allDependents";
+
+    public static final String PATH = "path";
+
+    public static final String SUBTREE = "subtree";
+
+    public static final String DEPTH = "depth";
+
+    public static final String IN_SUBTREE = "inSubtree";
+
+    private String key;
+
+    private String ancestor;
+
+    private String type = DEPENDENTS;
+
+    private String property;
+
+    private String refid;
+
+    private String graphRef;
+
+    @Override
+    public void execute() throws BuildException {
+        if (key == null) {
+            throw new BuildException("The key attribute is required");
+        }
+        if (property == null && refid == null) {
+            throw new BuildException("One of the property or refid attributes is required");
+        }
+        AntBuildMojo mojo = AntBuildMojo.getInstance();
+        Graph graph = graphRef != null ? mojo.getGraphRegistry().get(graphRef) : mojo.getGraph();
+        GraphQuery query = graph.getQuery();
+        Node node = graph.findNode(key);
+        List<Node> result;
+        if (DEPENDENTS.equals(type)) {
+            result = query.getDependents(node);
+        } else if (ALL_DEPENDENTS.equals(type)) {
+            result = query.getAllDependents(node);
+        } else if (PATH.equals(type)) {
+            result = query.getPath(node);
+        } else if (SUBTREE.equals(type)) {
+            result = query.getSubtree(node);
+        } else if (DEPTH.equals(type)) {
+            setResult(String.valueOf(query.getDepth(node)), query.getDepth(node));
+            return;
+        } else if (IN_SUBTREE.equals(type)) {
+            if (ancestor == null) {
+                throw new BuildException("The ancestor attribute is required by the " + IN_SUBTREE + " query");
+            }
+            boolean inSubtree = query.isInSubtree(graph.findNode(ancestor), node);
+            setResult(String.valueOf(inSubtree), inSubtree);
+            return;
+        } else {
+            throw new BuildException("Unknown query type: " + type);
+        }
+        StringBuilder sb = new StringBuilder();
+        for (Node resultNode : result) {
+            if (sb.length() > 0) {
+                sb.append(',');
+            }
+            sb.append(resultNode.getId());
+        }
+        setResult(sb.toString(), Collections.unmodifiableList(result));
+    }
+
+    private void setResult(String value, Object reference) {
+        if (property != null) {
+            getProject().setProperty(property, value);
+        }
+        if (refid != null) {
+            getProject().addReference(refid, reference);
+        }
+    }
+
+    /**
+     * @param key key of the queried node
+     */
+    public void setKey(String key) {
+        this.key = key;
+    }
+
+    /**
+     * @param ancestor key of the subtree root for the "inSubtree" query
+     */
+    public void setAncestor(String ancestor) {
+        this.ancestor = ancestor;
+    }
+
+    /**
+     * @param type query type, default is "dependents"
+     */
+    public void setType(String type) {
+        this.type = StringUtils.isEmpty(type) ? DEPENDENTS : type;
+    }
+
+    public void setProperty(String property) {
+        this.property = property;
+    }
+
+    public void setRefid(String refid) {
+        this.refid = refid;
+    }
+
+    /**
+     * @param graphRef ID of the registered graph to query instead of the current graph
+     */
+    public void setGraphref(String graphRef) {
+        this.graphRef = graphRef;
+    }
+
+}
@@ -35,7 +35,8 @@ import org.apache.tools.ant.types.Resource;
 import org.apache.tools.ant.types.ResourceCollection;
 import org.apache.tools.ant.types.resources.FileResource;
 import org.eclipse.aether.artifact.Artifact;
-import org.eclipse.aether.resolution.ArtifactResolutionException;
+import org.eclipse.aether.resolution.ArtifactResult;
+import org.nuxeo.build.maven.AntBuildMojo;
 import org.nuxeo.build.maven.ArtifactDescriptor;
 import org.nuxeo.build.maven.graph.DependencyUtils;
 
@@ -90,37 +91,48 @@ public class ResolveFiles extends DataType implements ResourceCollection {
         }
         if (artifacts == null) {
             artifacts = new ArrayList<>();
+            List<Artifact> toResolve = new ArrayList<>();
             for (Iterator<?> it = source.values().iterator(); it.hasNext();) {
-                String artifactKey = (String) it.next();
-                try {
-                    artifacts.add(resolveFile(artifactKey));
-                } catch (ArtifactResolutionException e) {
-                    log(e.getMessage(), Project.MSG_WARN);
+                toResolve.add(getArtifact((String) it.next(), classifier));
+            }
+            List<ArtifactResult> results = DependencyUtils.resolveAll(toResolve,
+                    AntBuildMojo.getInstance().getResolveThreads());
+            for (ArtifactResult result : results) {
+                if (result.isResolved()) {
+                    artifacts.add(toResource(result.getArtifact().getFile()));
                 }
             }
+            String failures = DependencyUtils.getFailures(results);
+            if (failures != null) {
+                log(failures, Project.MSG_WARN);
+            }
         }
         return artifacts.iterator();
     }
 
-    private FileResource resolveFile(String artifactKey) throws ArtifactResolutionException {
+    /**
+     * @return the artifact of the key, with the given classifier if not null; a versionless key gets the managed
+     *         version, else the newest one
+     * @since 2.1.8
+     */
+    static Artifact getArtifact(String artifactKey, String classifier) {
         ArtifactDescriptor ad = new ArtifactDescriptor(artifactKey);
         if (classifier != null) {
             ad.setClassifier(classifier);
         }
         Artifact artifact = ad.getAetherArtifact();
-        File file;
-        if (artifact.getFile() != null) {
-            file = artifact.getFile();
-        } else {
+        if (artifact.getFile() == null) {
             if ("".equals(artifact.getVersion())) {
                 artifact = DependencyUtils.setManagedVersion(artifact);
             }
             if ("".equals(artifact.getVersion())) {
                 artifact = DependencyUtils.setNewestVersion(artifact);
             }
-            artifact = DependencyUtils.resolve(artifact);
-            file = artifact.getFile();
         }
+        return artifact;
+    }
+
+    private FileResource toResource(File file) {
         FileResource fr = new FileResource(file);
         fr.setBaseDir(file.getParentFile());
         return fr;
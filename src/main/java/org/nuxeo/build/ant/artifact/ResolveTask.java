@@ -0,0 +1,173 @@
+/*
+ * (C) Copyright 2017 Nuxeo SA (http://nuxeo.com/) and contributors.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser General Public License
+ * (LGPL) version 2.1 which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/lgpl-2.1.html
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ */
+package org.nuxeo.build.ant.artifact;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.tools.ant.BuildException;
+import org.apache.tools.ant.Project;
+import org.apache.tools.ant.Task;
+import org.apache.tools.ant.types.Path;
+import org.eclipse.aether.artifact.Artifact;
+import org.eclipse.aether.resolution.ArtifactResult;
+
+import org.nuxeo.build.maven.AntBuildMojo;
+import org.nuxeo.build.maven.graph.DependencyUtils;
+
+/**
+ * Resolves a list of artifact keys at once, concurrently, and stores their files as a path reference, usable as a
+ * resource collection (in a copy task for instance).
+ * <p>
+ * The keys are given as a comma separated list and/or as the values of a properties file; the path follows that
+ * order. Versionless keys get their version from the dependency management, else the newest available version. All
+ * the resolution failures are reported together at the end.
+ *
+ * @since 2.1.8
+ */
+public class ResolveTask extends Task {
+
+    private String keys;
+
+    private File source;
+
+    private String classifier;
+
+    private String pathId;
+
+    private int threads;
+
+    private boolean failOnError = true;
+
+    @Override
+    public void execute() throws BuildException {
+        if (pathId == null) {
+            throw new BuildException("The pathid attribute is required");
+        }
+        AntBuildMojo mojo = AntBuildMojo.getInstance();
+        Path path = new Path(getProject());
+        List<Artifact> toResolve = new ArrayList<>();
+        for (String key : getKeys()) {
+            toResolve.add(ResolveFiles.getArtifact(key, classifier));
+        }
+        List<ArtifactResult> results = DependencyUtils.resolveAll(toResolve,
+                threads > 0 ? threads : mojo.getResolveThreads());
+        for (ArtifactResult result : results) {
+            if (result.isResolved()) {
+                path.createPathElement().setLocation(result.getArtifact().getFile());
+            }
+        }
+        String failures = DependencyUtils.getFailures(results);
+        if (failures != null) {
+            if (failOnError) {
+                throw new BuildException(failures);
+            }
+            log(failures, Project.MSG_WARN);
+        }
+        log(String.format("Resolved %d artifact(s) into %s", path.size(), pathId), Project.MSG_VERBOSE);
+        getProject().addReference(pathId, path);
+    }
+
+    private List<String> getKeys() {
+        List<String> result = new ArrayList<>();
+        if (keys != null) {
+            for (String key : StringUtils.split(keys, ',')) {
+                if (StringUtils.isNotBlank(key)) {
+                    result.add(key.trim());
+                }
+            }
+        }
+        if (source != null) {
+            try (InputStream in = Files.newInputStream(source.toPath())) {
+                for (String key : loadValues(in)) {
+                    result.add(key.trim());
+                }
+            } catch (IOException e) {
+                throw new BuildException("Cannot read " + source, e);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return the values of the properties, in the order of the file so that the resolved path is stable
+     */
+    static Collection<String> loadValues(InputStream in) throws IOException {
+        final Map<String, String> values = new LinkedHashMap<>();
+        Properties properties = new Properties() {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            public synchronized Object put(Object key, Object value) {
+                values.put((String) key, (String) value);
+                return super.put(key, value);
+            }
+        };
+        properties.load(in);
+        return values.values();
+    }
+
+    /**
+     * @param keys comma separated list of artifact keys
+     */
+    public void setKeys(String keys) {
+        this.keys = keys;
+    }
+
+    /**
+     * @param source properties file which values are artifact keys
+     */
+    public void setSource(File source) {
+        this.source = source;
+    }
+
+    /**
+     * @param classifier classifier replacing the classifier of all the keys
+     */
+    public void setClassifier(String classifier) {
+        this.classifier = classifier;
+    }
+
+    /**
+     * @param pathId ID of the path reference receiving the resolved files
+     */
+    public void setPathid(String pathId) {
+        this.pathId = pathId;
+    }
+
+    /**
+     * @param threads maximum number of concurrent resolutions; defaults to the Mojo "resolveThreads" parameter
+     */
+    public void setThreads(int threads) {
+        this.threads = threads;
+    }
+
+    /**
+     * @param failOnError whether to fail if some artifacts cannot be resolved, else they are only reported; default
+     *            is true
+     */
+    public void setFailonerror(boolean failOnError) {
+        this.failOnError = failOnError;
+    }
+
+}
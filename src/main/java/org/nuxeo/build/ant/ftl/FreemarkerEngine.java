@@ -28,6 +28,9 @@ import org.nuxeo.build.maven.AntBuildMojo;
 import freemarker.cache.FileTemplateLoader;
 import freemarker.template.Configuration;
 import freemarker.template.Template;
+import freemarker.template.TemplateHashModel;
+import freemarker.template.TemplateModel;
+import freemarker.template.TemplateModelException;
 
 /**
  * TODO NXBT-258
@@ -66,10 +69,47 @@ public class FreemarkerEngine {
         root.put("ant", project.getProperties());
         root.put("system", System.getProperties());
         root.put("profiles", AntBuildMojo.getInstance().getAntProfileManager());
-        root.put("graph", AntBuildMojo.getInstance().getGraph());
+        root.put("graph", new LazyGraphModel(AntBuildMojo.getInstance()));
         return root;
     }
 
+    /**
+     * Wraps the Mojo graph, which is only built if a template uses it.
+     *
+     * @since 2.1.8
+     */
+    protected class LazyGraphModel implements TemplateHashModel {
+
+        private final AntBuildMojo mojo;
+
+        private TemplateHashModel model;
+
+        protected LazyGraphModel(AntBuildMojo mojo) {
+            this.mojo = mojo;
+        }
+
+        protected TemplateHashModel getModel() throws TemplateModelException {
+            if (model == null) {
+                TemplateModel wrapped = cfg.getObjectWrapper().wrap(mojo.getGraph());
+                if (!(wrapped instanceof TemplateHashModel)) {
+                    throw new TemplateModelException("Unexpected graph model: " + wrapped);
+                }
+                model = (TemplateHashModel) wrapped;
+            }
+            return model;
+        }
+
+        @Override
+        public TemplateModel get(String key) throws TemplateModelException {
+            return getModel().get(key);
+        }
+
+        @Override
+        public boolean isEmpty() throws TemplateModelException {
+            return getModel().isEmpty();
+        }
+    }
+
     public Template getTemplate(String name) {
         try {
             return cfg.getTemplate(name);
@@ -20,14 +20,24 @@ package org.nuxeo.build.maven;
 import java.io.File;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Hashtable;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.maven.RepositoryUtils;
 import org.apache.maven.artifact.DependencyResolutionRequiredException;
 import org.apache.maven.artifact.handler.manager.ArtifactHandlerManager;
 import org.apache.maven.artifact.repository.ArtifactRepository;
+import org.apache.maven.model.DependencyManagement;
 import org.apache.maven.model.Profile;
 import org.apache.maven.plugin.AbstractMojo;
 import org.apache.maven.plugin.MojoExecutionException;
@@ -49,8 +59,12 @@ import org.codehaus.plexus.util.StringUtils;
 import org.eclipse.aether.DefaultRepositorySystemSession;
 import org.eclipse.aether.RepositorySystem;
 import org.eclipse.aether.RepositorySystemSession;
+import org.eclipse.aether.artifact.ArtifactTypeRegistry;
 import org.eclipse.aether.collection.DependencySelector;
+import org.eclipse.aether.graph.Dependency;
 import org.eclipse.aether.repository.RemoteRepository;
+import org.eclipse.aether.resolution.VersionRangeResolutionException;
+import org.eclipse.aether.util.artifact.ArtifactIdUtils;
 import org.eclipse.aether.util.artifact.JavaScopes;
 import org.eclipse.aether.util.graph.manager.DependencyManagerUtils;
 import org.eclipse.aether.util.graph.selector.AndDependencySelector;
@@ -62,7 +76,15 @@ import org.nuxeo.build.ant.AntClient;
 import org.nuxeo.build.ant.artifact.Expand;
 import org.nuxeo.build.ant.profile.AntProfileManager;
 import org.nuxeo.build.maven.filter.Filter;
+import org.nuxeo.build.maven.graph.DependencyUtils;
 import org.nuxeo.build.maven.graph.Graph;
+import org.nuxeo.build.maven.graph.GraphCache;
+import org.nuxeo.build.maven.graph.GraphRegistry;
+import org.nuxeo.build.maven.graph.InternPool;
+import org.nuxeo.build.maven.graph.ResolutionFailureCache;
+import org.nuxeo.build.maven.graph.ResolutionMemo;
+import org.nuxeo.build.maven.graph.SharedGraphCache;
+import org.nuxeo.build.maven.graph.VersionRangeCache;
 
 /**
  * Execute an Ant build manipulating Maven objects (artifacts, dependencies, properties, profiles, repositories,
@@ -78,6 +100,12 @@ public class AntBuildMojo extends AbstractMojo {
 
     protected Graph graph;
 
+    /**
+     * Whether {@link #graph} has been built on demand by {@link #getGraph(int)}, and can be collected again deeper.
+     * The graphs built explicitly (Ant expand tasks, {@link #newGraph()}...) are kept as they are.
+     */
+    protected boolean lazyGraph;
+
     protected AntProfileManager antProfileManager;
 
     /**
@@ -138,7 +166,14 @@ public class AntBuildMojo extends AbstractMojo {
 
     protected DefaultRepositorySystemSession session;
 
-    public DefaultRepositorySystemSession getSession() {
+    /**
+     * Description of the session settings impacting the dependency collection, used to fingerprint cached graphs.
+     *
+     * @since 2.1.8
+     */
+    protected String sessionDescription;
+
+    public synchronized DefaultRepositorySystemSession getSession() {
         if (session == null) {
             session = new DefaultRepositorySystemSession(repositorySystemSession);
             DependencySelector depSelector = session.getDependencySelector();
@@ -147,6 +182,8 @@ public class AntBuildMojo extends AbstractMojo {
                     new org.nuxeo.build.maven.graph.ScopeDependencySelector(JavaScopes.PROVIDED, JavaScopes.TEST),
                     new OptionalDependencySelector(), new ExclusionDependencySelector());
             session.setDependencySelector(depFilter);
+            sessionDescription = String.format("selector=scope!%s,%s+optional+exclusion;offline=%s",
+                    JavaScopes.PROVIDED, JavaScopes.TEST, session.isOffline());
             session.setConfigProperty(ConflictResolver.CONFIG_PROP_VERBOSE, false);
             session.setConfigProperty(DependencyManagerUtils.CONFIG_PROP_VERBOSE, true);
             session.setReadOnly();
@@ -229,6 +266,345 @@ public class AntBuildMojo extends AbstractMojo {
     @Parameter(defaultValue = "true", property = "failOnError", alias = "aamp.failOnError")
     protected boolean failOnError;
 
+    /**
+     * If true, the collected dependency graphs are cached on disk and reused by the next builds as long as the
+     * project dependencies, dependency management and repositories are unchanged.
+     *
+     * @since 2.1.8
+     */
+    @Parameter(defaultValue = "false", property = "aamp.graphCache")
+    protected boolean graphCache;
+
+    /**
+     * Directory of the persistent caches.
+     *
+     * @since 2.1.8
+     */
+    @Parameter(defaultValue = "${project.build.directory}/aamp-cache", property = "aamp.cacheDirectory")
+    protected File cacheDirectory;
+
+    protected GraphCache graphCacheInstance;
+
+    /**
+     * Maximum size, in MB, of the in-memory graph cache shared by the executions of the Maven session (goals and
+     * reactor modules). Default is 0 (disabled).
+     *
+     * @since 2.1.8
+     */
+    @Parameter(defaultValue = "0", property = "aamp.sharedGraphCacheSize")
+    protected int sharedGraphCacheSize;
+
+    /**
+     * @return the graph cache shared in the Maven session, or null if disabled
+     * @since 2.1.8
+     */
+    public SharedGraphCache getSharedGraphCache() {
+        if (sharedGraphCacheSize <= 0) {
+            return null;
+        }
+        return SharedGraphCache.get(getSession(), sharedGraphCacheSize * 1024L * 1024L);
+    }
+
+    /**
+     * @return description of the session settings impacting the dependency collection
+     * @since 2.1.8
+     */
+    public String getSessionDescription() {
+        getSession();
+        return sessionDescription;
+    }
+
+    /**
+     * If true, the project graph is built from the dependencies already resolved by Maven for the project instead of
+     * being collected again. Falls back on a collection if the Maven resolution result is not usable.
+     *
+     * @since 2.1.8
+     */
+    @Parameter(defaultValue = "false", property = "aamp.reuseProjectDependencies")
+    protected boolean reuseProjectDependencies;
+
+    /**
+     * @since 2.1.8
+     */
+    public boolean isReuseProjectDependencies() {
+        return reuseProjectDependencies;
+    }
+
+    /**
+     * Maximum number of graph roots resolved concurrently. Default is 1 (sequential resolution).
+     *
+     * @since 2.1.8
+     */
+    @Parameter(defaultValue = "1", property = "aamp.resolveThreads")
+    protected int resolveThreads;
+
+    /**
+     * @since 2.1.8
+     */
+    public int getResolveThreads() {
+        return resolveThreads;
+    }
+
+    /**
+     * Number of threads resolving in background the files of the graph nodes expanded or resolved by the Ant tasks:
+     * only the nodes accepted by the expansion filter and depth are downloaded, while the Ant targets run. Collect-only
+     * expansions are not prefetched. Default is 0 (no prefetch: files are resolved during the expansion).
+     *
+     * @since 2.1.8
+     */
+    @Parameter(defaultValue = "0", property = "aamp.prefetchThreads")
+    protected int prefetchThreads;
+
+    protected ExecutorService prefetchExecutor;
+
+    /**
+     * If true, the node data which is not needed by the Ant tasks is released once the graph is built (see
+     * {@link Graph#trim()}). Default is false.
+     *
+     * @since 2.1.8
+     */
+    @Parameter(defaultValue = "false", property = "aamp.trimGraph")
+    protected boolean trimGraph;
+
+    /**
+     * If true, the graph expansions (the "expand" parameter, and the Ant expand tasks by default) only collect the
+     * dependencies: the artifact files are resolved when first used. Default is false.
+     *
+     * @since 2.1.8
+     */
+    @Parameter(defaultValue = "false", property = "aamp.collectOnly")
+    protected boolean collectOnly;
+
+    /**
+     * @since 2.1.8
+     */
+    public boolean isCollectOnly() {
+        return collectOnly;
+    }
+
+    /**
+     * Time in minutes during which the newest versions of the versionless artifact keys are reused from the disk cache
+     * in {@code cacheDirectory}. Default is 0 (only cached in memory, for the Maven session).
+     *
+     * @since 2.1.8
+     */
+    @Parameter(defaultValue = "0", property = "aamp.versionCacheTtl")
+    protected long versionCacheTtl;
+
+    protected VersionRangeCache versionRangeCache;
+
+    /**
+     * @return the cache of the newest artifact versions
+     * @since 2.1.8
+     */
+    public synchronized VersionRangeCache getVersionRangeCache() {
+        if (versionRangeCache == null) {
+            versionRangeCache = VersionRangeCache.get(getSession());
+        }
+        return versionRangeCache;
+    }
+
+    /**
+     * @return the newest version of the artifact in the remote repositories, from the version range cache with the
+     *         disk storage of that execution; null if there is none
+     * @see #versionCacheTtl
+     * @since 2.1.8
+     */
+    public String getNewestVersion(org.eclipse.aether.artifact.Artifact artifact)
+            throws VersionRangeResolutionException {
+        File directory = versionCacheTtl > 0 ? new File(cacheDirectory, "versions") : null;
+        return getVersionRangeCache().getNewestVersion(artifact, getRemoteRepositories(), directory,
+                versionCacheTtl * 60 * 1000);
+    }
+
+    /**
+     * Time in minutes during which a failure to resolve an artifact is remembered for the Maven session: the next
+     * resolutions of that artifact fail at once instead of querying the remote repositories again. Artifacts of the
+     * reactor are always resolved, and only the missing artifacts are remembered. Default is 0 (disabled).
+     * <p>
+     * This is a session setting: the value of the first Mojo execution using the cache applies to the whole session.
+     *
+     * @since 2.1.8
+     */
+    @Parameter(defaultValue = "0", property = "aamp.failureCacheTtl")
+    protected long failureCacheTtl;
+
+    protected ResolutionFailureCache resolutionFailureCache;
+
+    /**
+     * @return the cache of the failed artifact resolutions
+     * @since 2.1.8
+     */
+    public synchronized ResolutionFailureCache getResolutionFailureCache() {
+        if (resolutionFailureCache == null) {
+            resolutionFailureCache = ResolutionFailureCache.get(getSession());
+            resolutionFailureCache.setTtl(failureCacheTtl * 60 * 1000);
+        }
+        return resolutionFailureCache;
+    }
+
+    /**
+     * If true, the project graph collection (and its expansion, see the "expand" parameter) starts in background at
+     * the beginning of the execution, once the Ant project is configured, while Ant parses the build files. The first
+     * task needing the graph waits for it. Default is false.
+     *
+     * @since 2.1.8
+     */
+    @Parameter(defaultValue = "false", property = "aamp.earlyGraph")
+    protected boolean earlyGraph;
+
+    /**
+     * The project graph being built in background, see {@link #earlyGraph}.
+     *
+     * @since 2.1.8
+     */
+    protected Future<Graph> earlyGraphFuture;
+
+    /**
+     * @return the executor resolving the graph files in background, or null if disabled
+     * @since 2.1.8
+     */
+    public synchronized ExecutorService getPrefetchExecutor() {
+        if (prefetchThreads > 0 && prefetchExecutor == null) {
+            prefetchExecutor = newExecutor(prefetchThreads, "aamp-prefetch");
+        }
+        return prefetchExecutor;
+    }
+
+    /**
+     * Cancels the pending background resolutions.
+     *
+     * @since 2.1.8
+     */
+    protected synchronized void stopPrefetch() {
+        if (prefetchExecutor != null) {
+            prefetchExecutor.shutdownNow();
+            prefetchExecutor = null;
+        }
+    }
+
+    protected InternPool internPool;
+
+    /**
+     * Maximum number of graphs built by the Ant tasks kept for reuse (see {@link GraphRegistry}). Default is 16, 0 to
+     * disable the reuse. Graphs registered with an explicit ID are not counted.
+     *
+     * @since 2.1.8
+     */
+    @Parameter(defaultValue = "16", property = "aamp.graphRegistrySize")
+    protected int graphRegistrySize;
+
+    protected GraphRegistry graphRegistry;
+
+    /**
+     * @return the registry of the graphs built by the Ant tasks of this execution
+     * @since 2.1.8
+     */
+    public synchronized GraphRegistry getGraphRegistry() {
+        if (graphRegistry == null) {
+            graphRegistry = new GraphRegistry(graphRegistrySize);
+        }
+        return graphRegistry;
+    }
+
+    /**
+     * @return the pool of canonical artifacts and dependencies used by the graphs of this execution
+     * @since 2.1.8
+     */
+    public synchronized InternPool getInternPool() {
+        if (internPool == null) {
+            internPool = new InternPool();
+        }
+        return internPool;
+    }
+
+    /**
+     * Maximum number of dependency results of the Ant artifact sets kept for reuse (see {@link ResolutionMemo}).
+     * Default is 64, 0 to disable the reuse.
+     *
+     * @since 2.1.8
+     */
+    @Parameter(defaultValue = "64", property = "aamp.resolutionMemoSize")
+    protected int resolutionMemoSize;
+
+    protected ResolutionMemo resolutionMemo;
+
+    /**
+     * @return the dependency results of the Ant artifact sets of this execution
+     * @since 2.1.8
+     */
+    public synchronized ResolutionMemo getResolutionMemo() {
+        if (resolutionMemo == null) {
+            resolutionMemo = new ResolutionMemo(resolutionMemoSize);
+        }
+        return resolutionMemo;
+    }
+
+    protected Map<String, Dependency> managedDependencies;
+
+    /**
+     * The effective project dependency management already includes the dependencies imported from the BOMs. When
+     * several entries have the same versionless ID, the first one wins.
+     *
+     * @return the project managed dependencies by versionless ID (see
+     *         {@link ArtifactIdUtils#toVersionlessId(org.eclipse.aether.artifact.Artifact)})
+     * @since 2.1.8
+     */
+    public synchronized Map<String, Dependency> getManagedDependencies() {
+        if (managedDependencies == null) {
+            List<Dependency> managed = new ArrayList<>();
+            DependencyManagement dependencyManagement = project.getDependencyManagement();
+            if (dependencyManagement != null) {
+                ArtifactTypeRegistry stereotypes = getSession().getArtifactTypeRegistry();
+                for (org.apache.maven.model.Dependency dependency : dependencyManagement.getDependencies()) {
+                    managed.add(getInternPool().intern(RepositoryUtils.toDependency(dependency, stereotypes)));
+                }
+            }
+            Map<String, Dependency> index = DependencyUtils.indexManagedDependencies(managed);
+            getLog().debug(String.format("Indexed %d managed dependencies", index.size()));
+            managedDependencies = Collections.unmodifiableMap(index);
+        }
+        return managedDependencies;
+    }
+
+    /**
+     * @return an executor which threads are bound to the current Mojo and Ant project
+     * @since 2.1.8
+     */
+    public ExecutorService newExecutor(int threads, final String name) {
+        final AntBuildMojo mojo = this;
+        final Project antProject = AntClient.getInstance();
+        return Executors.newFixedThreadPool(threads, new ThreadFactory() {
+            private final AtomicInteger count = new AtomicInteger();
+
+            @Override
+            public Thread newThread(final Runnable runnable) {
+                Thread thread = new Thread(new Runnable() {
+                    @Override
+                    public void run() {
+                        instance.set(mojo);
+                        AntClient.setInstance(antProject);
+                        runnable.run();
+                    }
+                }, name + "-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * @return the graph cache, or null if disabled
+     * @since 2.1.8
+     */
+    public synchronized GraphCache getGraphCache() {
+        if (graphCache && graphCacheInstance == null) {
+            getSession();
+            graphCacheInstance = new GraphCache(new File(cacheDirectory, "graphs"), getSessionDescription());
+        }
+        return graphCacheInstance;
+    }
+
     @Override
     public void execute() throws MojoExecutionException, MojoFailureException {
         instance.set(this);
@@ -248,29 +624,117 @@ public class AntBuildMojo extends AbstractMojo {
         if ((targets == null || targets.length == 0) && target != null) {
             targets = new String[] { target };
         }
-        for (File file : getBuildFiles()) {
-            try {
-                if (targets != null && targets.length > 0) {
-                    ant.run(file, Arrays.asList(targets));
-                } else {
-                    ant.run(file);
-                }
-                if (exportAntProperties) {
-                    setMavenPropertiesFromAnt(ant);
-                }
-            } catch (BuildException e) {
-                String errMsg = String.format("Error occurred while running %s@%d:%d\n%s", file.getPath(),
-                        e.getLocation().getLineNumber(), e.getLocation().getColumnNumber(), e.getMessage());
-                if (failOnError) {
-                    if (e instanceof ExitStatusException) {
-                        throw new MojoFailureException(errMsg, e);
+        if (earlyGraph) {
+            startEarlyGraph();
+        }
+        try {
+            for (File file : getBuildFiles()) {
+                try {
+                    if (targets != null && targets.length > 0) {
+                        ant.run(file, Arrays.asList(targets));
                     } else {
-                        throw new MojoExecutionException(errMsg, e);
+                        ant.run(file);
+                    }
+                    if (exportAntProperties) {
+                        setMavenPropertiesFromAnt(ant);
+                    }
+                } catch (BuildException e) {
+                    String errMsg = String.format("Error occurred while running %s@%d:%d\n%s", file.getPath(),
+                            e.getLocation().getLineNumber(), e.getLocation().getColumnNumber(), e.getMessage());
+                    if (failOnError) {
+                        if (e instanceof ExitStatusException) {
+                            throw new MojoFailureException(errMsg, e);
+                        } else {
+                            throw new MojoExecutionException(errMsg, e);
+                        }
+                    } else {
+                        getLog().error(errMsg, e);
                     }
-                } else {
-                    getLog().error(errMsg, e);
                 }
             }
+        } finally {
+            cancelEarlyGraph();
+            stopPrefetch();
+            if (internPool != null) {
+                getLog().debug(internPool.toString());
+            }
+            if (graphRegistry != null) {
+                getLog().debug(graphRegistry.toString());
+            }
+            if (versionRangeCache != null) {
+                getLog().debug(versionRangeCache.toString());
+            }
+            if (resolutionMemo != null) {
+                getLog().debug(resolutionMemo.toString());
+            }
+            if (resolutionFailureCache != null) {
+                getLog().debug(resolutionFailureCache.toString());
+            }
+        }
+        if (graphCacheInstance != null) {
+            getLog().info(graphCacheInstance.toString());
+        }
+        if (session != null && sharedGraphCacheSize > 0) {
+            // The last execution of the reactor prints the totals of the build
+            getLog().info(getSharedGraphCache().toString());
+        }
+    }
+
+    /**
+     * Starts building the project graph in background, once the Ant project is configured. The Maven project is only
+     * read from the background thread.
+     *
+     * @since 2.1.8
+     */
+    protected void startEarlyGraph() {
+        // Set by the collection otherwise
+        project.getArtifact().setFile(project.getFile());
+        ExecutorService executor = newExecutor(1, "aamp-graph");
+        earlyGraphFuture = executor.submit(new Callable<Graph>() {
+            @Override
+            public Graph call() {
+                Graph newGraph = new Graph();
+                newGraph.addRootNode(project);
+                expandGraph(newGraph);
+                return newGraph;
+            }
+        });
+        executor.shutdown();
+    }
+
+    /**
+     * Makes the graph built in background the current graph, once done.
+     *
+     * @since 2.1.8
+     */
+    protected void awaitEarlyGraph() {
+        if (earlyGraphFuture == null) {
+            return;
+        }
+        Future<Graph> future = earlyGraphFuture;
+        earlyGraphFuture = null;
+        try {
+            setGraph(future.get());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BuildException("Interrupted while waiting for the project graph", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof BuildException) {
+                throw (BuildException) e.getCause();
+            }
+            throw new BuildException("Cannot build the project graph", e.getCause());
+        }
+    }
+
+    /**
+     * Cancels the graph building in background, if any: it is not used.
+     *
+     * @since 2.1.8
+     */
+    protected void cancelEarlyGraph() {
+        if (earlyGraphFuture != null) {
+            earlyGraphFuture.cancel(true);
+            earlyGraphFuture = null;
         }
     }
 
@@ -278,7 +742,30 @@ public class AntBuildMojo extends AbstractMojo {
      * @since 1.10.2
      */
     public Graph newGraph() {
-        graph = new Graph();
+        return newGraph(Integer.MAX_VALUE);
+    }
+
+    /**
+     * @param depth depth down to which the project dependencies are collected
+     * @return a new graph rooted on the project
+     * @since 2.1.8
+     */
+    public Graph newGraph(int depth) {
+        return newGraph(depth, null);
+    }
+
+    /**
+     * @param depth depth down to which the project dependencies are collected
+     * @param collectFilter filter pushed down into the collection, null for none
+     * @return a new graph rooted on the project
+     * @see Graph#setCollectFilter(Filter)
+     * @since 2.1.8
+     */
+    public Graph newGraph(int depth, Filter collectFilter) {
+        cancelEarlyGraph();
+        setGraph(new Graph());
+        graph.setCollectDepth(depth);
+        graph.setCollectFilter(collectFilter);
         graph.addRootNode(project);
         expandGraph(graph);
         return graph;
@@ -290,16 +777,33 @@ public class AntBuildMojo extends AbstractMojo {
      * @since 2.0
      */
     public Graph newGraph(String key) {
-        graph = new Graph();
+        cancelEarlyGraph();
+        setGraph(new Graph());
         graph.addRootNode(key);
         expandGraph(graph);
         return graph;
     }
 
+    /**
+     * Makes the given graph the current graph. The registered graphs built from the previous one are removed.
+     *
+     * @since 2.1.8
+     */
+    protected void setGraph(Graph newGraph) {
+        if (graph != null && graph != newGraph && graphRegistry != null) {
+            graphRegistry.removeDerived(graph);
+        }
+        graph = newGraph;
+        lazyGraph = false;
+    }
+
     protected void expandGraph(Graph newGraph) {
         int depth = Expand.readExpand(expand);
         if (depth > 0) {
-            newGraph.resolveDependencies(Filter.ANY, depth);
+            newGraph.resolveDependencies(Filter.ANY, depth, resolveThreads, collectOnly);
+        }
+        if (trimGraph) {
+            newGraph.trim();
         }
     }
 
@@ -424,8 +928,24 @@ public class AntBuildMojo extends AbstractMojo {
     }
 
     public Graph getGraph() {
-        if (graph == null) {
-            graph = newGraph();
+        return getGraph(Integer.MAX_VALUE);
+    }
+
+    /**
+     * If there is no current graph, the project graph is built, with its dependencies collected down to the given
+     * depth only. That graph is collected again if a later caller needs a deeper one. A graph built explicitly (by an
+     * Ant expand task for instance) is returned as is.
+     * <p>
+     * A tree collected down to a limited depth is not cached (see {@link Graph#setCollectDepth(int)}).
+     *
+     * @param depth depth down to which the caller needs the project dependencies
+     * @since 2.1.8
+     */
+    public Graph getGraph(int depth) {
+        awaitEarlyGraph();
+        if (graph == null || lazyGraph && graph.getCollectDepth() < depth) {
+            newGraph(depth);
+            lazyGraph = true;
         }
         return graph;
     }
@@ -145,7 +145,10 @@ public class ArtifactDescriptor {
      * @since 2.0
      */
     public Dependency getDependency() {
-        return new Dependency(new DefaultArtifact(groupId, artifactId, classifier, type, version), scope);
+        Dependency dependency = new Dependency(new DefaultArtifact(groupId, artifactId, classifier, type, version),
+                scope);
+        AntBuildMojo mojo = AntBuildMojo.getInstance();
+        return mojo != null ? mojo.getInternPool().intern(dependency) : dependency;
     }
 
     /**
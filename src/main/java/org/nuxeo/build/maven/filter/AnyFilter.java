@@ -35,4 +35,18 @@ public class AnyFilter extends AbstractFilter {
     public boolean accept(DependencyNode node, List<DependencyNode> parents) {
         return true;
     }
+
+    /**
+     * @since 2.1.8
+     */
+    @Override
+    public boolean equals(Object obj) {
+        return this == obj || null != obj && getClass().equals(obj.getClass());
+    }
+
+    @Override
+    public int hashCode() {
+        return getClass().hashCode();
+    }
+
 }
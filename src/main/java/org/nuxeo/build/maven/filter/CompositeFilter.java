@@ -20,6 +20,7 @@ import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
 
 import org.apache.commons.lang3.StringUtils;
@@ -136,4 +137,26 @@ public abstract class CompositeFilter extends AbstractFilter {
         }
 
     }
+
+    /**
+     * Composite filters are equal if they are of the same class and have the same filters, whatever their order and
+     * repetitions.
+     *
+     * @since 2.1.8
+     */
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        } else if (null == obj || !getClass().equals(obj.getClass())) {
+            return false;
+        }
+        CompositeFilter that = (CompositeFilter) obj;
+        return new HashSet<>(filters).equals(new HashSet<>(that.filters));
+    }
+
+    @Override
+    public int hashCode() {
+        return getClass().hashCode() * 31 + new HashSet<>(filters).hashCode();
+    }
 }
@@ -37,4 +37,23 @@ public class ExactMatch extends SegmentMatch {
         return getClass().toString() + " (" + segment + ")";
     }
 
+    /**
+     * @since 2.1.8
+     */
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        } else if (null == obj || !getClass().equals(obj.getClass())) {
+            return false;
+        }
+        ExactMatch that = (ExactMatch) obj;
+        return segment.equals(that.segment);
+    }
+
+    @Override
+    public int hashCode() {
+        return segment.hashCode();
+    }
+
 }
@@ -0,0 +1,154 @@
+/*
+ * (C) Copyright 2017 Nuxeo SA (http://nuxeo.com/) and contributors.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser General Public License
+ * (LGPL) version 2.1 which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/lgpl-2.1.html
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ */
+package org.nuxeo.build.maven.filter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.eclipse.aether.collection.DependencyCollectionContext;
+import org.eclipse.aether.collection.DependencySelector;
+import org.eclipse.aether.graph.DefaultDependencyNode;
+import org.eclipse.aether.graph.Dependency;
+
+/**
+ * A dependency selector pruning, during the collection, the subtrees a filter refuses as a whole: the dependencies
+ * below a dependency matching an excluded ancestor pattern ({@code <exclude ancestor="..."/>}) are not collected, since
+ * the filter refuses all of them.
+ * <p>
+ * Nothing else is pushed down: the filter applies to each node on its own, so a dependency it refuses on its
+ * coordinates can have accepted dependencies, and an include cannot prune anything. The ancestor patterns are only
+ * pushed down if they check nothing but the group ID, artifact ID, type and classifier, which the collected dependency
+ * shares with the resolved node; scope, optional flag and version may change with the dependency mediation.
+ *
+ * @see #compile(Filter)
+ * @since 2.1.8
+ */
+public final class FilterDependencySelector implements DependencySelector {
+
+    private final List<AncestorFilter> excludedAncestors;
+
+    private final boolean pruned;
+
+    private FilterDependencySelector(List<AncestorFilter> excludedAncestors, boolean pruned) {
+        this.excludedAncestors = excludedAncestors;
+        this.pruned = pruned;
+    }
+
+    /**
+     * @return a selector pruning the subtrees the given filter refuses as a whole, null if there is none
+     */
+    public static DependencySelector compile(Filter filter) {
+        List<AncestorFilter> excludedAncestors = new ArrayList<>();
+        if (filter != null) {
+            addExcludedAncestors(filter, excludedAncestors);
+        }
+        return excludedAncestors.isEmpty() ? null
+                : new FilterDependencySelector(Collections.unmodifiableList(excludedAncestors), false);
+    }
+
+    /**
+     * Lists the ancestor patterns which descendants the filter surely refuses.
+     */
+    static void addExcludedAncestors(Filter filter, List<AncestorFilter> excludedAncestors) {
+        if (filter instanceof AndFilter) {
+            for (Filter child : ((AndFilter) filter).getFilters()) {
+                addExcludedAncestors(child, excludedAncestors);
+            }
+        } else if (filter instanceof NotFilter) {
+            Filter excluded = unwrap(((NotFilter) filter).getFilter());
+            // Excluding "a or b" excludes both a and b
+            List<Filter> alternatives = excluded instanceof OrFilter ? ((OrFilter) excluded).getFilters()
+                    : Collections.singletonList(excluded);
+            for (Filter alternative : alternatives) {
+                alternative = unwrap(alternative);
+                if (alternative instanceof AncestorFilter && isCoordinateFilter(alternative)) {
+                    excludedAncestors.add((AncestorFilter) alternative);
+                }
+            }
+        }
+    }
+
+    private static Filter unwrap(Filter filter) {
+        if (filter instanceof AndFilter || filter instanceof OrFilter) {
+            return CompositeFilter.compact((CompositeFilter) filter);
+        }
+        return filter;
+    }
+
+    /**
+     * @return true if the filter only checks the coordinates of the dependency, which do not change from the
+     *         collection to the resolution
+     */
+    private static boolean isCoordinateFilter(Filter filter) {
+        if (filter instanceof CompositeFilter) {
+            for (Filter child : ((CompositeFilter) filter).getFilters()) {
+                if (!isCoordinateFilter(child)) {
+                    return false;
+                }
+            }
+            return true;
+        } else if (filter instanceof NotFilter) {
+            return isCoordinateFilter(((NotFilter) filter).getFilter());
+        }
+        return filter instanceof GroupIdFilter || filter instanceof ArtifactIdFilter || filter instanceof TypeFilter
+                || filter instanceof ClassifierFilter || filter instanceof AnyFilter || filter instanceof TrueFilter;
+    }
+
+    public List<AncestorFilter> getExcludedAncestors() {
+        return excludedAncestors;
+    }
+
+    @Override
+    public boolean selectDependency(Dependency dependency) {
+        return !pruned;
+    }
+
+    @Override
+    public DependencySelector deriveChildSelector(DependencyCollectionContext context) {
+        Dependency dependency = context.getDependency();
+        if (pruned || dependency == null) {
+            return this;
+        }
+        DefaultDependencyNode node = new DefaultDependencyNode(dependency);
+        for (AncestorFilter ancestor : excludedAncestors) {
+            if (ancestor.accept(node)) {
+                return new FilterDependencySelector(excludedAncestors, true);
+            }
+        }
+        return this;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        } else if (null == obj || !getClass().equals(obj.getClass())) {
+            return false;
+        }
+        FilterDependencySelector that = (FilterDependencySelector) obj;
+        return pruned == that.pruned && excludedAncestors.equals(that.excludedAncestors);
+    }
+
+    @Override
+    public int hashCode() {
+        return excludedAncestors.hashCode() * 31 + (pruned ? 1 : 0);
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + " [excluded ancestors " + excludedAncestors + (pruned ? ", pruned]" : "]");
+    }
+
+}
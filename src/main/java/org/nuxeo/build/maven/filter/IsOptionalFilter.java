@@ -44,4 +44,24 @@ public class IsOptionalFilter extends AbstractFilter {
         org.eclipse.aether.graph.Dependency dependency = node.getDependency();
         return result(dependency != null && dependency.isOptional(), node.toString());
     }
+
+    /**
+     * @since 2.1.8
+     */
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        } else if (null == obj || !getClass().equals(obj.getClass())) {
+            return false;
+        }
+        IsOptionalFilter that = (IsOptionalFilter) obj;
+        return isOptional == that.isOptional;
+    }
+
+    @Override
+    public int hashCode() {
+        return getClass().hashCode() * 31 + (isOptional ? 1 : 0);
+    }
+
 }
@@ -44,4 +44,23 @@ public class MiddleMatch extends SegmentMatch {
         return getClass().toString() + " (" + prefix + "," + suffix + ")";
     }
 
+    /**
+     * @since 2.1.8
+     */
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        } else if (null == obj || !getClass().equals(obj.getClass())) {
+            return false;
+        }
+        MiddleMatch that = (MiddleMatch) obj;
+        return prefix.equals(that.prefix) && suffix.equals(that.suffix);
+    }
+
+    @Override
+    public int hashCode() {
+        return prefix.hashCode() * 31 + suffix.hashCode();
+    }
+
 }
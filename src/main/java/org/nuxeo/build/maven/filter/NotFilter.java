@@ -48,4 +48,23 @@ public class NotFilter extends AbstractFilter {
         return result(!filter.accept(node, parents), node.toString());
     }
 
+    /**
+     * @since 2.1.8
+     */
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        } else if (null == obj || !getClass().equals(obj.getClass())) {
+            return false;
+        }
+        NotFilter that = (NotFilter) obj;
+        return filter.equals(that.filter);
+    }
+
+    @Override
+    public int hashCode() {
+        return getClass().hashCode() * 31 + filter.hashCode();
+    }
+
 }
@@ -37,4 +37,23 @@ public class PrefixMatch extends SegmentMatch {
         return getClass().toString() + " (" + prefix + ")";
     }
 
+    /**
+     * @since 2.1.8
+     */
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        } else if (null == obj || !getClass().equals(obj.getClass())) {
+            return false;
+        }
+        PrefixMatch that = (PrefixMatch) obj;
+        return prefix.equals(that.prefix);
+    }
+
+    @Override
+    public int hashCode() {
+        return prefix.hashCode();
+    }
+
 }
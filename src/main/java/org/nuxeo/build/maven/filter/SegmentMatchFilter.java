@@ -38,4 +38,23 @@ public abstract class SegmentMatchFilter extends AbstractFilter {
         return super.toString() + " [" + matcher + "]";
     }
 
-}
\ No newline at end of file
+    /**
+     * @since 2.1.8
+     */
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        } else if (null == obj || !getClass().equals(obj.getClass())) {
+            return false;
+        }
+        SegmentMatchFilter that = (SegmentMatchFilter) obj;
+        return matcher.equals(that.matcher);
+    }
+
+    @Override
+    public int hashCode() {
+        return getClass().hashCode() * 31 + matcher.hashCode();
+    }
+
+}
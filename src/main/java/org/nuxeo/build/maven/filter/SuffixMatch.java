@@ -37,4 +37,23 @@ public class SuffixMatch extends SegmentMatch {
         return getClass().toString() + " (" + suffix + ")";
     }
 
+    /**
+     * @since 2.1.8
+     */
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        } else if (null == obj || !getClass().equals(obj.getClass())) {
+            return false;
+        }
+        SuffixMatch that = (SuffixMatch) obj;
+        return suffix.equals(that.suffix);
+    }
+
+    @Override
+    public int hashCode() {
+        return suffix.hashCode();
+    }
+
 }
@@ -38,4 +38,17 @@ public class TrueFilter extends AbstractFilter {
         return true;
     }
 
+    /**
+     * @since 2.1.8
+     */
+    @Override
+    public boolean equals(Object obj) {
+        return this == obj || null != obj && getClass().equals(obj.getClass());
+    }
+
+    @Override
+    public int hashCode() {
+        return getClass().hashCode();
+    }
+
 }
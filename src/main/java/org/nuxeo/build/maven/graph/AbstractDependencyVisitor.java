@@ -79,6 +79,17 @@ public abstract class AbstractDependencyVisitor implements DependencyVisitor {
         this.scopes = scopes;
     }
 
+    /**
+     * Visits the graph from the given root with the {@link DependencyWalker}, which does not recurse on the thread
+     * stack. Prefer that method to {@link DependencyNode#accept(DependencyVisitor)} on deep graphs.
+     *
+     * @return the result of {@link #visitLeave(DependencyNode)} on the root
+     * @since 2.1.8
+     */
+    public boolean traverse(DependencyNode root) {
+        return DependencyWalker.walk(root, this);
+    }
+
     /**
      * Marks the specified node as being visited and determines whether the node has been visited before.
      *
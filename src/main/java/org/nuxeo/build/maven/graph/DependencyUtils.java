@@ -18,27 +18,41 @@
 
 package org.nuxeo.build.maven.graph;
 
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 import org.apache.maven.RepositoryUtils;
 import org.apache.maven.artifact.handler.ArtifactHandler;
 import org.apache.tools.ant.BuildException;
 import org.apache.tools.ant.Project;
+import org.codehaus.plexus.util.StringUtils;
 import org.eclipse.aether.artifact.Artifact;
-import org.eclipse.aether.collection.DependencyManagement;
+import org.eclipse.aether.artifact.ArtifactProperties;
+import org.eclipse.aether.graph.DependencyFilter;
 import org.eclipse.aether.graph.Dependency;
 import org.eclipse.aether.graph.DependencyNode;
 import org.eclipse.aether.repository.RemoteRepository;
+import org.eclipse.aether.repository.WorkspaceReader;
 import org.eclipse.aether.resolution.ArtifactRequest;
 import org.eclipse.aether.resolution.ArtifactResolutionException;
 import org.eclipse.aether.resolution.ArtifactResult;
 import org.eclipse.aether.resolution.DependencyRequest;
 import org.eclipse.aether.resolution.DependencyResolutionException;
 import org.eclipse.aether.resolution.DependencyResult;
-import org.eclipse.aether.resolution.VersionRangeRequest;
 import org.eclipse.aether.resolution.VersionRangeResolutionException;
-import org.eclipse.aether.resolution.VersionRangeResult;
 import org.eclipse.aether.util.artifact.ArtifactIdUtils;
+import org.eclipse.aether.util.filter.DependencyFilterUtils;
 import org.nuxeo.build.ant.AntClient;
 import org.nuxeo.build.maven.AntBuildMojo;
 import org.nuxeo.build.maven.filter.Filter;
@@ -95,19 +109,182 @@ public class DependencyUtils {
         return resolve(artifact, mojo.getRemoteRepositories());
     }
 
+    /**
+     * @return the file of the node artifact, resolved if not yet done (for instance in a collect-only graph); the
+     *         resolved artifact is then set on the node
+     * @throws BuildException if the artifact cannot be resolved
+     * @since 2.1.8
+     */
+    public static File getFile(DependencyNode node) throws BuildException {
+        Artifact artifact = node.getArtifact();
+        if (artifact.getFile() == null) {
+            try {
+                artifact = resolve(artifact);
+            } catch (org.eclipse.aether.resolution.ArtifactResolutionException e) {
+                throw new BuildException("Cannot resolve " + artifact, e);
+            }
+            node.setArtifact(artifact);
+        }
+        return artifact.getFile();
+    }
+
     /**
      * @throws org.eclipse.aether.resolution.ArtifactResolutionException
      */
     public static Artifact resolve(Artifact artifact, List<RemoteRepository> remoteRepositories)
             throws org.eclipse.aether.resolution.ArtifactResolutionException {
         AntBuildMojo mojo = AntBuildMojo.getInstance();
-        ArtifactResult result = mojo.getSystem().resolveArtifact(mojo.getSession(),
-                new ArtifactRequest(artifact, remoteRepositories, null));
+        ArtifactRequest request = new ArtifactRequest(artifact, remoteRepositories, null);
+        List<Exception> failure = getCachedFailure(request);
+        if (failure != null) {
+            throw ResolutionFailureCache.toException(request, failure);
+        }
+        ArtifactResult result;
+        try {
+            result = mojo.getSystem().resolveArtifact(mojo.getSession(), request);
+        } catch (ArtifactResolutionException e) {
+            for (ArtifactResult failed : e.getResults()) {
+                mojo.getResolutionFailureCache().addFailure(failed);
+            }
+            throw e;
+        }
         artifact = result.getArtifact();
         AntClient.getInstance().log(artifact + " resolved to  " + artifact.getFile(), Project.MSG_DEBUG);
         return artifact;
     }
 
+    /**
+     * Resolves the artifacts in batches of requests, the batches being resolved on up to {@code parallelism} threads.
+     * A failure does not stop the resolution of the other artifacts. The artifacts which already have a file are
+     * returned as resolved.
+     *
+     * @param parallelism maximum number of concurrent batches; 1 or less for a single batch
+     * @return the results in the order of the given artifacts, including the unresolved ones with their exceptions
+     * @since 2.1.8
+     */
+    public static List<ArtifactResult> resolveAll(Collection<Artifact> artifacts, int parallelism) {
+        AntBuildMojo mojo = AntBuildMojo.getInstance();
+        ArtifactResult[] results = new ArtifactResult[artifacts.size()];
+        List<ArtifactRequest> requests = new ArrayList<>();
+        int index = 0;
+        for (Artifact artifact : artifacts) {
+            ArtifactRequest request = new ArtifactRequest(artifact, mojo.getRemoteRepositories(), null);
+            if (artifact.getFile() != null) {
+                results[index++] = new ArtifactResult(request).setArtifact(artifact);
+                continue;
+            }
+            List<Exception> failure = getCachedFailure(request);
+            if (failure != null) {
+                results[index] = ResolutionFailureCache.toResult(request, failure);
+            } else {
+                requests.add(request);
+            }
+            index++;
+        }
+        Iterator<ArtifactResult> resolved = resolveRequests(requests, parallelism).iterator();
+        for (int i = 0; i < results.length; i++) {
+            if (results[i] == null) {
+                results[i] = resolved.next();
+            }
+        }
+        return Arrays.asList(results);
+    }
+
+    /**
+     * Same as {@link #resolveAll(Collection, int)} on prepared requests, without the resolution failure cache lookup.
+     */
+    static List<ArtifactResult> resolveRequests(List<ArtifactRequest> requests, int parallelism) {
+        AntBuildMojo mojo = AntBuildMojo.getInstance();
+        if (requests.isEmpty()) {
+            return Collections.emptyList();
+        } else if (parallelism <= 1 || requests.size() <= 1) {
+            return resolveBatch(requests);
+        }
+        int batches = Math.min(parallelism, requests.size());
+        int batchSize = (requests.size() + batches - 1) / batches;
+        ExecutorService executor = mojo.newExecutor(batches, "aamp-resolve-artifacts");
+        try {
+            List<Future<List<ArtifactResult>>> futures = new ArrayList<>();
+            for (int i = 0; i < requests.size(); i += batchSize) {
+                final List<ArtifactRequest> batch = requests.subList(i, Math.min(i + batchSize, requests.size()));
+                futures.add(executor.submit(new Callable<List<ArtifactResult>>() {
+                    @Override
+                    public List<ArtifactResult> call() {
+                        return resolveBatch(batch);
+                    }
+                }));
+            }
+            List<ArtifactResult> results = new ArrayList<>(requests.size());
+            for (Future<List<ArtifactResult>> future : futures) {
+                try {
+                    results.addAll(future.get());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new BuildException("Interrupted while resolving " + requests, e);
+                } catch (ExecutionException e) {
+                    throw new BuildException("Cannot resolve " + requests, e.getCause());
+                }
+            }
+            return results;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static List<ArtifactResult> resolveBatch(List<ArtifactRequest> requests) {
+        AntBuildMojo mojo = AntBuildMojo.getInstance();
+        try {
+            return mojo.getSystem().resolveArtifacts(mojo.getSession(), requests);
+        } catch (ArtifactResolutionException e) {
+            // The results of the whole batch, resolved or not
+            for (ArtifactResult result : e.getResults()) {
+                mojo.getResolutionFailureCache().addFailure(result);
+            }
+            return e.getResults();
+        }
+    }
+
+    /**
+     * @return the exceptions of a recent failure to resolve the requested artifact, null if it must be resolved; an
+     *         artifact found in the reactor is always resolved
+     */
+    private static List<Exception> getCachedFailure(ArtifactRequest request) {
+        AntBuildMojo mojo = AntBuildMojo.getInstance();
+        ResolutionFailureCache cache = mojo.getResolutionFailureCache();
+        if (!cache.isEnabled()) {
+            return null;
+        }
+        WorkspaceReader workspace = mojo.getSession().getWorkspaceReader();
+        if (workspace != null && workspace.findArtifact(request.getArtifact()) != null) {
+            return null;
+        }
+        return cache.getFailure(request.getArtifact(), request.getRepositories());
+    }
+
+    /**
+     * @return a message listing the unresolved artifacts of the given results and their causes, null if all are
+     *         resolved
+     * @since 2.1.8
+     */
+    public static String getFailures(List<ArtifactResult> results) {
+        StringBuilder sb = new StringBuilder();
+        int failures = 0;
+        for (ArtifactResult result : results) {
+            if (result.isResolved()) {
+                continue;
+            }
+            failures++;
+            sb.append("\n  ").append(result.getRequest().getArtifact());
+            for (Exception e : result.getExceptions()) {
+                sb.append("\n    ").append(e.getMessage());
+            }
+        }
+        if (failures == 0) {
+            return null;
+        }
+        return String.format("Cannot resolve %d artifact(s) out of %d:%s", failures, results.size(), sb);
+    }
+
     /**
      * @throws ArtifactResolutionException
      * @deprecated Prefer use of {@link #resolve(org.eclipse.aether.artifact.Artifact)}
@@ -134,54 +311,78 @@ public class DependencyUtils {
     }
 
     /**
-     * FIXME JC doesn't work because of depth < 2 in org.eclipse.aether.collection.DependencyManager
+     * Applies the project dependency management (version, system path, scope, optional flag and exclusions) to the
+     * given dependency.
      *
      * @return The dependency on which the dependencyManagement has been applied.
      */
     public static Dependency getManagedDependency(Dependency dependency) {
-        AntBuildMojo mojo = AntBuildMojo.getInstance();
-        DependencyManagement depMgt = mojo.getSession().getDependencyManager().manageDependency(dependency);
-        if (depMgt != null) {
-            if (depMgt.getVersion() != null) {
-                Artifact artifact = dependency.getArtifact();
-                dependency = dependency.setArtifact(artifact.setVersion(depMgt.getVersion()));
-            }
-            if (depMgt.getProperties() != null) {
-                Artifact artifact = dependency.getArtifact();
-                dependency = dependency.setArtifact(artifact.setProperties(depMgt.getProperties()));
-            }
-            if (depMgt.getScope() != null) {
-                dependency = dependency.setScope(depMgt.getScope());
-            }
-            if (depMgt.getOptional() != null) {
-                dependency = dependency.setOptional(depMgt.getOptional());
-            }
-            if (depMgt.getExclusions() != null) {
-                dependency = dependency.setExclusions(depMgt.getExclusions());
-            }
+        Dependency managed = AntBuildMojo.getInstance()
+                                         .getManagedDependencies()
+                                         .get(ArtifactIdUtils.toVersionlessId(dependency.getArtifact()));
+        if (managed == null) {
+            return dependency;
+        }
+        return applyManagement(dependency, managed);
+    }
+
+    /**
+     * @return the dependency with the version, system path, scope, optional flag and exclusions of the managed one,
+     *         when set
+     */
+    static Dependency applyManagement(Dependency dependency, Dependency managed) {
+        Artifact managedArtifact = managed.getArtifact();
+        Artifact artifact = dependency.getArtifact();
+        if (StringUtils.isNotEmpty(managedArtifact.getVersion())) {
+            artifact = artifact.setVersion(managedArtifact.getVersion());
+        }
+        String localPath = managedArtifact.getProperty(ArtifactProperties.LOCAL_PATH, null);
+        if (localPath != null) {
+            Map<String, String> properties = new HashMap<>(artifact.getProperties());
+            properties.put(ArtifactProperties.LOCAL_PATH, localPath);
+            artifact = artifact.setProperties(properties);
+        }
+        dependency = dependency.setArtifact(artifact);
+        if (StringUtils.isNotEmpty(managed.getScope())) {
+            dependency = dependency.setScope(managed.getScope());
+        }
+        if (managed.getOptional() != null) {
+            dependency = dependency.setOptional(managed.getOptional());
+        }
+        if (!managed.getExclusions().isEmpty()) {
+            dependency = dependency.setExclusions(managed.getExclusions());
         }
         return dependency;
     }
 
+    /**
+     * @return the managed dependencies by versionless ID (see {@link ArtifactIdUtils#toVersionlessId(Artifact)});
+     *         when several have the same versionless ID, the first one wins
+     * @since 2.1.8
+     */
+    public static Map<String, Dependency> indexManagedDependencies(Collection<Dependency> dependencies) {
+        Map<String, Dependency> index = new HashMap<>();
+        for (Dependency dependency : dependencies) {
+            String id = ArtifactIdUtils.toVersionlessId(dependency.getArtifact());
+            if (!index.containsKey(id)) {
+                index.put(id, dependency);
+            }
+        }
+        return index;
+    }
+
     /**
      * Look for a version in the project dependencyManagement for the given artifact and set it.
      *
      * @return The new artifact if the version changed, else the original one
      */
     public static Artifact setManagedVersion(Artifact artifact) {
-        AntBuildMojo mojo = AntBuildMojo.getInstance();
-        List<org.apache.maven.model.Dependency> managedDeps = AntBuildMojo.getInstance()
-                                                                          .getProject()
-                                                                          .getDependencyManagement()
-                                                                          .getDependencies();
-        for (org.apache.maven.model.Dependency dependency : managedDeps) {
-            Artifact managedArtifact = RepositoryUtils.toDependency(dependency,
-                    mojo.getSession().getArtifactTypeRegistry()).getArtifact();
-            if (ArtifactIdUtils.equalsVersionlessId(managedArtifact, artifact)) {
-                artifact = artifact.setVersion(managedArtifact.getVersion());
-                AntClient.getInstance().log("Managed version set on " + artifact);
-                break;
-            }
+        Dependency managed = AntBuildMojo.getInstance()
+                                         .getManagedDependencies()
+                                         .get(ArtifactIdUtils.toVersionlessId(artifact));
+        if (managed != null) {
+            artifact = artifact.setVersion(managed.getArtifact().getVersion());
+            AntClient.getInstance().log("Managed version set on " + artifact);
         }
         return artifact;
     }
@@ -193,14 +394,13 @@ public class DependencyUtils {
      */
     public static Artifact setNewestVersion(Artifact artifact) {
         AntBuildMojo mojo = AntBuildMojo.getInstance();
-        artifact = artifact.setVersion("[0,)");
-        VersionRangeRequest rangeRequest = new VersionRangeRequest(artifact, AntBuildMojo.getInstance()
-                                                                                         .getRemoteRepositories(), null);
         try {
-            VersionRangeResult rangeResult = mojo.getSystem().resolveVersionRange(mojo.getSession(), rangeRequest);
-            AntClient.getInstance().log(
-                    String.format("Versions found for %s: %s", artifact, rangeResult.getVersions()), Project.MSG_DEBUG);
-            artifact = artifact.setVersion(rangeResult.getHighestVersion().toString());
+            String version = mojo.getNewestVersion(artifact);
+            if (version == null) {
+                AntClient.getInstance().log("No version found for " + artifact, Project.MSG_WARN);
+                return artifact;
+            }
+            artifact = artifact.setVersion(version);
             AntClient.getInstance().log("Highest version found set on " + artifact);
         } catch (VersionRangeResolutionException e) {
             AntClient.getInstance().log(e.getMessage(), e, Project.MSG_ERR);
@@ -209,13 +409,16 @@ public class DependencyUtils {
     }
 
     /**
-     * TODO NXBT-696 manage depth limit
+     * Resolves the artifacts of the collected tree below the given node, down to the given depth: the node itself is
+     * at depth 0, its direct dependencies at depth 1. The deeper nodes are left unresolved.
+     *
+     * @param depth maximum depth of the resolved nodes, {@link Integer#MAX_VALUE} for the whole tree
      */
     public static DependencyResult resolveDependencies(DependencyNode node, Filter filter, int depth) {
         AntBuildMojo mojo = AntBuildMojo.getInstance();
         AntClient.getInstance().log(String.format("Resolving %s with filter %s and depth %d", node, filter, depth),
                 Project.MSG_DEBUG);
-        DependencyRequest dependencyRequest = new DependencyRequest(node, filter);
+        DependencyRequest dependencyRequest = new DependencyRequest(node, newDependencyFilter(filter, depth));
         try {
             DependencyResult result = mojo.getSystem().resolveDependencies(mojo.getSession(), dependencyRequest);
             AntClient.getInstance().log("Dependency result: " + result, new Error(), Project.MSG_DEBUG);
@@ -226,4 +429,32 @@ public class DependencyUtils {
         }
     }
 
+    /**
+     * @return the filter of the nodes resolved by {@link #resolveDependencies(DependencyNode, Filter, int)}
+     */
+    static DependencyFilter newDependencyFilter(Filter filter, int depth) {
+        if (depth < Integer.MAX_VALUE) {
+            return DependencyFilterUtils.andFilter(filter, newDepthFilter(depth));
+        }
+        return filter;
+    }
+
+    /**
+     * @return a filter accepting the nodes at the given depth at most, relative to the resolved node
+     * @since 2.1.8
+     */
+    public static DependencyFilter newDepthFilter(final int depth) {
+        return new DependencyFilter() {
+            @Override
+            public boolean accept(DependencyNode node, List<DependencyNode> parents) {
+                return parents.size() <= depth;
+            }
+
+            @Override
+            public String toString() {
+                return "depth <= " + depth;
+            }
+        };
+    }
+
 }
@@ -0,0 +1,89 @@
+/*
+ * (C) Copyright 2017 Nuxeo SA (http://nuxeo.com/) and contributors.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser General Public License
+ * (LGPL) version 2.1 which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/lgpl-2.1.html
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ */
+package org.nuxeo.build.maven.graph;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+
+import org.eclipse.aether.graph.DependencyNode;
+import org.eclipse.aether.graph.DependencyVisitor;
+
+/**
+ * Depth-first traversal of a dependency graph using an explicit stack instead of recursion, so that the traversal
+ * depth is not limited by the thread stack size.
+ * <p>
+ * The visitor calls are the same as with {@link DependencyNode#accept(DependencyVisitor)}: the children are visited
+ * only if {@link DependencyVisitor#visitEnter(DependencyNode)} returned true, and the remaining siblings are skipped
+ * when {@link DependencyVisitor#visitLeave(DependencyNode)} returned false. The children list is read once the node has
+ * been entered. {@link Node} instances are unwrapped, as done by {@link Node#accept(DependencyVisitor)}.
+ *
+ * @since 2.1.8
+ */
+public class DependencyWalker {
+
+    private DependencyWalker() {
+    }
+
+    private static class Frame {
+
+        final DependencyNode node;
+
+        final List<DependencyNode> children;
+
+        int position;
+
+        boolean stopped;
+
+        Frame(DependencyNode node, List<DependencyNode> children) {
+            this.node = node;
+            this.children = children;
+        }
+    }
+
+    /**
+     * @return the result of {@link DependencyVisitor#visitLeave(DependencyNode)} on the root
+     */
+    public static boolean walk(DependencyNode root, DependencyVisitor visitor) {
+        Deque<Frame> stack = new ArrayDeque<>();
+        stack.push(enter(root, visitor));
+        while (true) {
+            Frame frame = stack.peek();
+            if (!frame.stopped && frame.position < frame.children.size()) {
+                stack.push(enter(frame.children.get(frame.position++), visitor));
+                continue;
+            }
+            stack.pop();
+            boolean result = visitor.visitLeave(frame.node);
+            if (stack.isEmpty()) {
+                return result;
+            }
+            if (!result) {
+                stack.peek().stopped = true;
+            }
+        }
+    }
+
+    private static Frame enter(DependencyNode node, DependencyVisitor visitor) {
+        while (node instanceof Node) {
+            node = ((Node) node).getDependencyNode();
+        }
+        if (visitor.visitEnter(node)) {
+            return new Frame(node, node.getChildren());
+        }
+        return new Frame(node, Collections.<DependencyNode> emptyList());
+    }
+
+}
@@ -0,0 +1,76 @@
+/*
+ * (C) Copyright 2017 Nuxeo SA (http://nuxeo.com/) and contributors.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser General Public License
+ * (LGPL) version 2.1 which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/lgpl-2.1.html
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ */
+package org.nuxeo.build.maven.graph;
+
+import org.eclipse.aether.collection.DependencyCollectionContext;
+import org.eclipse.aether.collection.DependencySelector;
+import org.eclipse.aether.graph.Dependency;
+
+/**
+ * A dependency selector that stops the collection below a maximum depth: the direct dependencies of the collected root
+ * are at depth 1.
+ *
+ * @since 2.1.8
+ */
+public final class DepthDependencySelector implements DependencySelector {
+
+    private final int depth;
+
+    private final int maxDepth;
+
+    /**
+     * @param maxDepth depth of the deepest collected dependencies
+     */
+    public DepthDependencySelector(int maxDepth) {
+        this(0, maxDepth);
+    }
+
+    private DepthDependencySelector(int depth, int maxDepth) {
+        this.depth = depth;
+        this.maxDepth = maxDepth;
+    }
+
+    @Override
+    public boolean selectDependency(Dependency dependency) {
+        return depth <= maxDepth;
+    }
+
+    @Override
+    public DependencySelector deriveChildSelector(DependencyCollectionContext context) {
+        if (depth > maxDepth) {
+            return this;
+        }
+        return new DepthDependencySelector(depth + 1, maxDepth);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        } else if (null == obj || !getClass().equals(obj.getClass())) {
+            return false;
+        }
+        DepthDependencySelector that = (DepthDependencySelector) obj;
+        return depth == that.depth && maxDepth == that.maxDepth;
+    }
+
+    @Override
+    public int hashCode() {
+        int hash = 17;
+        hash = hash * 31 + depth;
+        hash = hash * 31 + maxDepth;
+        return hash;
+    }
+
+}
@@ -17,14 +17,26 @@
 package org.nuxeo.build.maven.graph;
 
 import java.io.File;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
 import java.util.HashMap;
-import java.util.LinkedList;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.SortedMap;
-import java.util.TreeMap;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
 
 import org.apache.maven.RepositoryUtils;
 import org.apache.maven.artifact.Artifact;
@@ -36,39 +48,176 @@ import org.apache.maven.project.MavenProject;
 import org.apache.tools.ant.BuildException;
 import org.apache.tools.ant.Project;
 import org.codehaus.plexus.util.StringUtils;
+import org.eclipse.aether.DefaultRepositorySystemSession;
 import org.eclipse.aether.artifact.ArtifactType;
 import org.eclipse.aether.artifact.ArtifactTypeRegistry;
 import org.eclipse.aether.collection.CollectRequest;
 import org.eclipse.aether.collection.CollectResult;
 import org.eclipse.aether.collection.DependencyCollectionException;
+import org.eclipse.aether.collection.DependencySelector;
+import org.eclipse.aether.graph.DefaultDependencyNode;
 import org.eclipse.aether.graph.Dependency;
+import org.eclipse.aether.graph.DependencyFilter;
 import org.eclipse.aether.graph.DependencyNode;
+import org.eclipse.aether.graph.DependencyVisitor;
+import org.eclipse.aether.resolution.ArtifactRequest;
+import org.eclipse.aether.resolution.ArtifactResolutionException;
+import org.eclipse.aether.resolution.ArtifactResult;
+import org.eclipse.aether.resolution.DependencyRequest;
 import org.eclipse.aether.resolution.DependencyResult;
 import org.eclipse.aether.util.artifact.ArtifactIdUtils;
 import org.eclipse.aether.util.artifact.JavaScopes;
+import org.eclipse.aether.util.graph.manager.DependencyManagerUtils;
+import org.eclipse.aether.util.graph.selector.AndDependencySelector;
+import org.eclipse.aether.util.graph.transformer.ConflictResolver;
+import org.eclipse.aether.util.graph.visitor.FilteringDependencyVisitor;
+import org.eclipse.aether.util.graph.visitor.TreeDependencyVisitor;
 
 import org.nuxeo.build.ant.AntClient;
 import org.nuxeo.build.maven.AntBuildMojo;
 import org.nuxeo.build.maven.ArtifactDescriptor;
 import org.nuxeo.build.maven.filter.Filter;
+import org.nuxeo.build.maven.filter.FilterDependencySelector;
 
 /**
  * TODO NXBT-258
  */
 public class Graph {
 
-    public final TreeMap<String, Node> nodes = new TreeMap<>();
+    /**
+     * @since 2.1.8
+     */
+    final GraphStore store = new GraphStore();
+
+    private final GraphIndex index = new GraphIndex();
+
+    private GraphQuery query;
+
+    private final Set<DependencyNode> trimmed = Collections.newSetFromMap(
+            new IdentityHashMap<DependencyNode, Boolean>());
+
+    /**
+     * Roots as added, including the ones refused by the last resolution filter.
+     */
+    private final List<Node> addedRoots = new ArrayList<>();
+
+    private final Map<DependencyNode, List<Resolution>> resolutions = new IdentityHashMap<>();
 
-    public final List<Node> roots = new LinkedList<>();
+    private int resolvedNodes;
+
+    private final Map<String, Future<org.eclipse.aether.artifact.Artifact>> prefetches = new ConcurrentHashMap<>();
+
+    private int reusedNodes;
+
+    private int collectDepth = Integer.MAX_VALUE;
+
+    private Filter collectFilter;
+
+    private DependencySelector collectSelector;
 
     private AntBuildMojo mojo = AntBuildMojo.getInstance();
 
+    /**
+     * @since 2.1.8
+     */
+    final InternPool pool = mojo != null ? mojo.getInternPool() : new InternPool();
+
+    /**
+     * @return a read-only view on the root nodes
+     */
     public List<Node> getRoots() {
-        return roots;
+        return store.getRoots();
     }
 
+    /**
+     * @return the nodes sorted by ID
+     */
     public Collection<Node> getNodes() {
-        return nodes.values();
+        return store.getSortedNodes();
+    }
+
+    /**
+     * @return the queries on the current state of the graph (reverse dependencies, paths, depths, subtrees)
+     * @since 2.1.8
+     */
+    public GraphQuery getQuery() {
+        GraphQuery current = query;
+        if (current == null) {
+            current = new GraphQuery(store, getRoots());
+            query = current;
+        }
+        return current;
+    }
+
+    /**
+     * Releases the node data which is not read once the graph is built: conflict resolution and dependency management
+     * data other than the premanaged version and scope, relocations, aliases and request context. The conflict
+     * winners referenced by the nodes are replaced with a node holding only the winner artifact, when the winner is not
+     * in the graph. The repositories are kept since they are needed for further resolutions.
+     *
+     * @since 2.1.8
+     */
+    public void trim() {
+        int trimmedNodes = 0;
+        int dataEntries = 0;
+        int relocations = 0;
+        Set<DependencyNode> detached = Collections.newSetFromMap(new IdentityHashMap<DependencyNode, Boolean>());
+        for (Node node : getNodes()) {
+            DependencyNode dependencyNode = unwrap(node);
+            if (!trimmed.add(dependencyNode)) {
+                continue;
+            }
+            trimmedNodes++;
+            Map<?, ?> data = dependencyNode.getData();
+            if (!data.isEmpty()) {
+                Map<Object, Object> kept = new HashMap<>(4);
+                for (Map.Entry<?, ?> entry : data.entrySet()) {
+                    Object key = entry.getKey();
+                    Object value = entry.getValue();
+                    if (DependencyManagerUtils.NODE_DATA_PREMANAGED_VERSION.equals(key)
+                            || DependencyManagerUtils.NODE_DATA_PREMANAGED_SCOPE.equals(key)) {
+                        kept.put(key, value);
+                    } else if (ConflictResolver.NODE_DATA_WINNER.equals(key) && value instanceof DependencyNode) {
+                        DependencyNode winner = (DependencyNode) value;
+                        if (getStoredNode(winner) == null) {
+                            countDetached(winner, detached);
+                            winner = new DefaultDependencyNode(winner.getArtifact());
+                        }
+                        kept.put(key, winner);
+                    } else {
+                        dataEntries++;
+                    }
+                }
+                dependencyNode.setData(kept.isEmpty() ? null : kept);
+            }
+            if (dependencyNode instanceof DefaultDependencyNode) {
+                DefaultDependencyNode defaultNode = (DefaultDependencyNode) dependencyNode;
+                relocations += defaultNode.getRelocations().size() + defaultNode.getAliases().size();
+                defaultNode.setRelocations(null);
+                defaultNode.setAliases(null);
+            }
+            dependencyNode.setRequestContext(null);
+        }
+        AntClient.getInstance().log(
+                String.format("Trimmed %d node(s): released %d data entries, %d relocation(s) and alias(es), "
+                        + "%d dependency node(s) only referenced by conflict data", trimmedNodes, dataEntries,
+                        relocations, detached.size()), Project.MSG_INFO);
+    }
+
+    /**
+     * Counts the nodes of that tree which are not in the graph.
+     */
+    private void countDetached(DependencyNode root, Set<DependencyNode> detached) {
+        Deque<DependencyNode> stack = new ArrayDeque<>();
+        stack.push(root);
+        while (!stack.isEmpty()) {
+            DependencyNode node = stack.pop();
+            if (getStoredNode(node) == null && detached.add(node)) {
+                for (DependencyNode child : node.getChildren()) {
+                    stack.push(child);
+                }
+            }
+        }
     }
 
     /**
@@ -88,30 +237,29 @@ public class Graph {
             // Pattern requiring completion: #findNode(ArtifactDescriptor) must be used instead
             return null;
         }
-        SortedMap<String, Node> map = nodes.subMap(pattern + ':', pattern + ((char) (':' + 1)));
-        int size = map.size();
+        List<Node> matches = store.getSortedNodes(pattern + ':', pattern + ((char) (':' + 1)));
+        int size = matches.size();
         if (size == 0) {
             return null;
         }
         if (stopIfNotUnique && size > 1) {
             AntClient.getInstance().log(
                     String.format("Pattern '%s' cannot be resolved to a unique node. Matching nodes are: %s", pattern,
-                            map.values()), Project.MSG_DEBUG);
+                            matches), Project.MSG_DEBUG);
             return null;
         }
-        return map.get(map.firstKey());
+        return matches.get(0);
     }
 
     public Collection<Node> find(String pattern) {
-        SortedMap<String, Node> map = nodes.subMap(pattern + ':', pattern + ((char) (':' + 1)));
-        return map.values();
+        return store.getSortedNodes(pattern + ':', pattern + ((char) (':' + 1)));
     }
 
     /**
      * Add a root node given a Maven Project POM. This can be used to initialize the graph.
      */
     public Node addRootNode(MavenProject pom) {
-        Node node = nodes.get(Node.genNodeId(pom.getArtifact()));
+        Node node = getStoredNode(Node.genNodeId(pom.getArtifact()));
         if (node == null) {
             node = collectRootNode(pom);
         }
@@ -127,11 +275,11 @@ public class Graph {
      * @since 2.0
      */
     public Node addRootNode(Dependency dependency) {
-        Node node = nodes.get(Node.genNodeId(dependency));
+        Node node = getStoredNode(Node.genNodeId(dependency));
         if (node == null) {
             node = collectRootNode(dependency);
         } else {
-            roots.add(node);
+            addRoot(node);
             AntClient.getInstance().log("Added root node: " + node, Project.MSG_DEBUG);
         }
         return node;
@@ -141,13 +289,13 @@ public class Graph {
      * @since 2.0
      */
     public Node addRootNode(Node node) {
-        if (!nodes.containsKey(node.id)) {
+        if (!store.contains(node.id)) {
             node = collectRootNode(node.getDependency());
-        } else if (!roots.contains(node)) {
-            roots.add(node);
+        } else if (!store.isRoot(node.id)) {
+            addRoot(node);
             AntClient.getInstance().log("Added root node: " + node, Project.MSG_DEBUG);
         }
-        return nodes.get(node.id);
+        return getStoredNode(node.id);
     }
 
     public Node collectRootNode(Dependency dependency) {
@@ -160,69 +308,250 @@ public class Graph {
      */
     public Node addRootNode(DependencyNode root) {
         Node node = new Node(this, root);
-        roots.add(node);
+        addRoot(node);
         AntClient.getInstance().log("Added root node: " + node, Project.MSG_DEBUG);
         addNode(node);
         return node;
     }
 
     /**
-     * @since 2.0.4
+     * @return true if the files resolved by {@link #resolveDependencies(Filter, int, int, boolean)} are downloaded in
+     *         background, as enabled with the Mojo "prefetchThreads" parameter
+     * @since 2.1.8
      */
-    public Node collectRootNode(MavenProject pom) {
-        DependencyNode root = collectDependencies(pom);
-        return addRootNode(root);
+    public boolean isPrefetchEnabled() {
+        return mojo != null && mojo.getPrefetchExecutor() != null;
+    }
+
+    /**
+     * Starts the background resolution of the files of the nodes below the given roots which are accepted by the
+     * filter, down to the given depth: the nodes {@link DependencyUtils#resolveDependencies} would resolve.
+     * {@link Node#getFile()} then waits for the prefetched file instead of resolving it.
+     * <p>
+     * Does nothing unless enabled with the Mojo "prefetchThreads" parameter.
+     *
+     * @since 2.1.8
+     */
+    public void prefetchFiles(Collection<? extends DependencyNode> roots, Filter filter, int depth) {
+        ExecutorService executor = isPrefetchEnabled() ? mojo.getPrefetchExecutor() : null;
+        if (executor == null) {
+            return;
+        }
+        DependencyFilter dependencyFilter = DependencyUtils.newDependencyFilter(filter, depth);
+        for (DependencyNode root : roots) {
+            for (DependencyNode node : getResolvedNodes(root, dependencyFilter)) {
+                final org.eclipse.aether.artifact.Artifact artifact = node.getArtifact();
+                String id = Node.genNodeId(node);
+                if (artifact.getFile() != null || prefetches.containsKey(id)) {
+                    continue;
+                }
+                try {
+                    prefetches.put(id, executor.submit(new Callable<org.eclipse.aether.artifact.Artifact>() {
+                        @Override
+                        public org.eclipse.aether.artifact.Artifact call() throws ArtifactResolutionException {
+                            return DependencyUtils.resolve(artifact);
+                        }
+                    }));
+                } catch (RejectedExecutionException e) {
+                    // Prefetch stopped
+                    return;
+                }
+            }
+        }
     }
 
-    private Node resolveRootNode(Node root, Filter filter, int depth) {
-        if (!filter.accept(root, null)) {
+    /**
+     * @return the nodes below the root (included) which artifacts are resolved by a dependency request with that
+     *         filter, each node listed once
+     */
+    private static List<DependencyNode> getResolvedNodes(DependencyNode root, DependencyFilter dependencyFilter) {
+        final List<DependencyNode> resolvedNodes = new ArrayList<>();
+        root.accept(new TreeDependencyVisitor(new FilteringDependencyVisitor(new DependencyVisitor() {
+            @Override
+            public boolean visitEnter(DependencyNode node) {
+                if (node.getDependency() != null) {
+                    resolvedNodes.add(node);
+                }
+                return true;
+            }
+
+            @Override
+            public boolean visitLeave(DependencyNode node) {
+                return true;
+            }
+        }, dependencyFilter)));
+        return resolvedNodes;
+    }
+
+    /**
+     * Waits for the background resolution of the node file, if any.
+     *
+     * @return the resolved artifact, or null if the node file has not been prefetched
+     * @throws ArtifactResolutionException if the prefetch failed to resolve the artifact
+     * @since 2.1.8
+     */
+    public org.eclipse.aether.artifact.Artifact getPrefetchedArtifact(Node node) throws ArtifactResolutionException {
+        Future<org.eclipse.aether.artifact.Artifact> future = prefetches.get(node.getId());
+        if (future == null) {
+            return null;
+        }
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (CancellationException e) {
+            return null;
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof ArtifactResolutionException) {
+                throw (ArtifactResolutionException) e.getCause();
+            }
             return null;
         }
-        DependencyResult result = DependencyUtils.resolveDependencies(root, filter, depth);
-        Node node = new Node(this, result.getRoot());
-        roots.add(node);
-        AntClient.getInstance().log("Added resolved root node: " + node, Project.MSG_DEBUG);
-        addNode(node);
-        return node;
+    }
+
+    /**
+     * @since 2.0.4
+     */
+    public Node collectRootNode(MavenProject pom) {
+        DependencyNode root = null;
+        if (mojo.isReuseProjectDependencies()) {
+            root = seedDependencies(pom);
+        }
+        if (root == null) {
+            root = collectDependencies(pom);
+        }
+        return addRootNode(root);
     }
 
     /**
      * @since 2.0
      */
     public void addNode(Node node) {
-        if (nodes.containsKey(node.getId())) {
+        if (store.contains(node.getId())) {
             return;
         }
-        nodes.put(node.getId(), node);
+        DependencyWalker.walk(node, new NodeCollector(node));
+    }
+
+    /**
+     * Adds the nodes of a tree to the graph, using an explicit stack instead of recursion (see
+     * {@link DependencyWalker}). Nodes already in the graph are linked but not traversed again.
+     */
+    private class NodeCollector implements DependencyVisitor {
+
+        private final Node root;
+
+        private final Deque<Entry> stack = new ArrayDeque<>();
+
+        NodeCollector(Node root) {
+            this.root = root;
+        }
+
+        @Override
+        public boolean visitEnter(DependencyNode dependencyNode) {
+            Node node = stack.isEmpty() ? root : getStoredNode(dependencyNode);
+            if (node == null) {
+                node = new Node(Graph.this, dependencyNode);
+            }
+            boolean added = !store.contains(node.getId());
+            if (added) {
+                ingest(node);
+            }
+            stack.push(new Entry(node, added ? node.getChildren().size() : 0));
+            return added;
+        }
+
+        @Override
+        public boolean visitLeave(DependencyNode dependencyNode) {
+            Entry entry = stack.pop();
+            if (entry.childIndexes != null) {
+                store.setChildren(entry.node.index, entry.childIndexes);
+            }
+            Entry parent = stack.peek();
+            if (parent != null) {
+                entry.node.addParent(parent.node);
+                parent.childIndexes[parent.childCount++] = entry.node.index;
+            }
+            return true;
+        }
+    }
+
+    private static class Entry {
+
+        final Node node;
+
+        final int[] childIndexes;
+
+        int childCount;
+
+        Entry(Node node, int children) {
+            this.node = node;
+            childIndexes = children > 0 ? new int[children] : null;
+        }
+    }
+
+    private void ingest(Node node) {
+        org.eclipse.aether.artifact.Artifact artifact = node.getArtifact();
+        org.eclipse.aether.artifact.Artifact canonical = pool.intern(artifact);
+        if (canonical != artifact) {
+            node.setArtifact(canonical);
+        }
+        query = null;
+        store.add(node);
+        index.add(node);
         AntClient.getInstance().log("Added node: " + node, Project.MSG_DEBUG);
-        if (!roots.contains(node)) {
+        if (!store.isRoot(node.getId())) {
             // Check resolved children follow Maven rules on transitive dependencies scope
             // https://maven.apache.org/guides/introduction/introduction-to-dependency-mechanism.html#Transitive_Dependencies
-            List<DependencyNode> removes = new ArrayList<>();
-            for (DependencyNode child : node.getChildren()) {
+            for (Iterator<DependencyNode> it = node.getChildren().iterator(); it.hasNext();) {
+                DependencyNode child = it.next();
                 String childScope = child.getDependency().getScope();
                 if (JavaScopes.PROVIDED.equals(childScope) || JavaScopes.TEST.equals(childScope)) {
                     AntClient.getInstance().log("Unexpected child node: " + child + " for " + node, Project.MSG_DEBUG);
-                    removes.add(child);
+                    it.remove();
                 }
             }
-            node.getChildren().removeAll(removes);
         }
-        // Add children
-        for (DependencyNode child : node.getChildren()) {
-            Node childNode = nodes.get(Node.genNodeId(child));
-            if (childNode == null) {
-                childNode = new Node(this, child);
-                addNode(childNode);
+    }
+
+    private void addRoot(Node node) {
+        addedRoots.add(node);
+        setRoot(node);
+    }
+
+    private void setRoot(Node node) {
+        query = null;
+        store.setRoot(node.getId());
+    }
+
+    private Node getStoredNode(String id) {
+        int index = store.indexOf(id);
+        return index < 0 ? null : store.get(index);
+    }
+
+    /**
+     * Looks up the node by identity first, then by ID. Another instance found by ID is recorded as an alias.
+     */
+    private Node getStoredNode(DependencyNode dependencyNode) {
+        int index = store.indexOf(dependencyNode);
+        if (index < 0) {
+            index = store.indexOf(Node.genNodeId(dependencyNode));
+            if (index < 0) {
+                return null;
             }
-            childNode.addParent(node);
+            store.alias(dependencyNode, index);
         }
+        return store.get(index);
     }
 
     public Node findNode(ArtifactDescriptor ad) {
         if (ad.isEmpty()) {
             return null;
         }
+        if (GraphIndex.isIndexed(ad)) {
+            return index.find(ad);
+        }
         String key = ad.getNodeKeyPattern();
         Collection<Node> nodesToParse = null;
         if (key == null) {
@@ -269,10 +598,98 @@ public class Graph {
         return collect(collectRequest);
     }
 
+    /**
+     * Limits the collection of the next root nodes. The partial trees are neither loaded from nor stored in the graph
+     * caches ({@link GraphCache}, {@link SharedGraphCache}). The scopes are mediated within the partial tree only: a
+     * dependency may get a narrower scope than in the full tree, where a deeper occurrence could widen it.
+     *
+     * @param collectDepth maximum depth of the trees collected for the next root nodes, default is no limit
+     * @since 2.1.8
+     */
+    public void setCollectDepth(int collectDepth) {
+        this.collectDepth = collectDepth;
+    }
+
+    /**
+     * @since 2.1.8
+     */
+    public int getCollectDepth() {
+        return collectDepth;
+    }
+
+    /**
+     * Pushes the filter down into the collection of the next root nodes: the subtrees it refuses as a whole, below
+     * the excluded ancestors, are not collected. The nodes the filter accepts are the same, unless a pruned node won
+     * a version conflict: the losing version is then kept instead.
+     *
+     * @param collectFilter filter the collected trees will be resolved with, null for no pushdown
+     * @see FilterDependencySelector
+     * @since 2.1.8
+     */
+    public void setCollectFilter(Filter collectFilter) {
+        this.collectFilter = collectFilter;
+        collectSelector = FilterDependencySelector.compile(collectFilter);
+    }
+
+    /**
+     * @since 2.1.8
+     */
+    public Filter getCollectFilter() {
+        return collectFilter;
+    }
+
     protected DependencyNode collect(CollectRequest collectRequest) {
+        if (collectDepth < Integer.MAX_VALUE || collectSelector != null) {
+            // Partial trees are not cached
+            DefaultRepositorySystemSession session = new DefaultRepositorySystemSession(mojo.getSession());
+            DependencySelector selector = session.getDependencySelector();
+            if (collectDepth < Integer.MAX_VALUE) {
+                selector = new AndDependencySelector(selector, new DepthDependencySelector(collectDepth));
+            }
+            if (collectSelector != null) {
+                selector = new AndDependencySelector(selector, collectSelector);
+            }
+            session.setDependencySelector(selector);
+            try {
+                CollectResult result = mojo.getSystem().collectDependencies(session, collectRequest);
+                AntClient.getInstance().log(String.format("Collected %s down to depth %d with selector %s",
+                        collectRequest.getRoot(), collectDepth, selector), Project.MSG_DEBUG);
+                return result.getRoot();
+            } catch (DependencyCollectionException e) {
+                throw new BuildException("Cannot collect dependency tree for " + collectRequest, e);
+            }
+        }
+        SharedGraphCache sharedCache = mojo.getSharedGraphCache();
+        String fingerprint = null;
+        if (sharedCache != null) {
+            fingerprint = GraphCache.fingerprint(collectRequest, mojo.getSessionDescription());
+            DependencyNode node = sharedCache.load(collectRequest, fingerprint, pool);
+            if (node != null) {
+                return node;
+            }
+        }
+        GraphCache cache = mojo.getGraphCache();
+        if (cache != null) {
+            DependencyNode node = cache.load(collectRequest, pool);
+            if (node != null) {
+                if (sharedCache != null) {
+                    sharedCache.store(collectRequest, fingerprint, node);
+                }
+                return node;
+            }
+        }
         try {
+            long start = System.currentTimeMillis();
             CollectResult result = mojo.getSystem().collectDependencies(mojo.getSession(), collectRequest);
             DependencyNode node = result.getRoot();
+            if (result.getExceptions().isEmpty()) {
+                if (cache != null) {
+                    cache.store(collectRequest, node, System.currentTimeMillis() - start);
+                }
+                if (sharedCache != null) {
+                    sharedCache.store(collectRequest, fingerprint, node);
+                }
+            }
             AntClient.getInstance().log("Collect result: " + result, Project.MSG_DEBUG);
             AntClient.getInstance().log("Collect exceptions: " + result.getExceptions(), Project.MSG_DEBUG);
             AntClient.getInstance()
@@ -291,9 +708,11 @@ public class Graph {
         AntClient.getInstance().log(String.format("Collecting " + project), Project.MSG_DEBUG);
         CollectRequest collectRequest = new CollectRequest();
         Artifact rootArtifact = project.getArtifact();
-        rootArtifact.setFile(project.getFile());
+        if (rootArtifact.getFile() != project.getFile()) {
+            rootArtifact.setFile(project.getFile());
+        }
         collectRequest.setRootArtifact(RepositoryUtils.toArtifact(rootArtifact));
-        collectRequest.setRoot(RepositoryUtils.toDependency(rootArtifact, null));
+        collectRequest.setRoot(pool.intern(RepositoryUtils.toDependency(rootArtifact, null)));
         collectRequest.setRequestContext("AAMP graph");
         collectRequest.setRepositories(project.getRemoteProjectRepositories());
 
@@ -307,7 +726,7 @@ public class Graph {
                     // guard against case where best-effort resolution for invalid models is requested
                     continue;
                 }
-                collectRequest.addDependency(RepositoryUtils.toDependency(dependency, stereotypes));
+                collectRequest.addDependency(pool.intern(RepositoryUtils.toDependency(dependency, stereotypes)));
             }
         } else {
             Map<String, org.apache.maven.model.Dependency> dependencies = new HashMap<>();
@@ -334,7 +753,7 @@ public class Graph {
                     art = art.setFile(null).setVersion(art.getBaseVersion());
                     dep = dep.setArtifact(art);
                 }
-                collectRequest.addDependency(dep);
+                collectRequest.addDependency(pool.intern(dep));
             }
         }
 
@@ -348,17 +767,373 @@ public class Graph {
         return collect(collectRequest);
     }
 
+    /**
+     * Rebuilds the project dependency tree from the dependency trails of the artifacts already resolved by Maven,
+     * instead of collecting it again. The Maven default dependency selection (test and provided scopes, optional and
+     * excluded dependencies are not transitive) is the same as the one used by the plugin; only the dependency
+     * management data (premanaged version and scope) is not available.
+     *
+     * @return the project root node, or null if the Maven resolution result cannot be used
+     * @since 2.1.8
+     */
+    protected DependencyNode seedDependencies(MavenProject project) {
+        Set<Artifact> artifacts = project.getArtifacts();
+        if (artifacts == null || artifacts.isEmpty() && !project.getDependencies().isEmpty()) {
+            AntClient.getInstance().log("No dependency resolved by Maven for " + project, Project.MSG_VERBOSE);
+            return null;
+        }
+        ArtifactTypeRegistry stereotypes = mojo.getSession().getArtifactTypeRegistry();
+        Map<String, org.apache.maven.model.Dependency> directDependencies = new HashMap<>();
+        for (org.apache.maven.model.Dependency dependency : project.getDependencies()) {
+            Dependency dep = RepositoryUtils.toDependency(dependency, stereotypes);
+            directDependencies.put(ArtifactIdUtils.toVersionlessId(dep.getArtifact()), dependency);
+        }
+        Artifact rootArtifact = project.getArtifact();
+        rootArtifact.setFile(project.getFile());
+        DefaultDependencyNode root = new DefaultDependencyNode(pool.intern(RepositoryUtils.toDependency(
+                rootArtifact, null)));
+        root.setRequestContext("AAMP graph");
+        root.setRepositories(project.getRemoteProjectRepositories());
+        Map<String, DependencyNode> trailNodes = new HashMap<>();
+        trailNodes.put(rootArtifact.getId(), root);
+        for (Artifact artifact : artifacts) {
+            List<String> trail = artifact.getDependencyTrail();
+            DependencyNode parent = null;
+            if (trail != null && trail.size() >= 2) {
+                parent = trailNodes.get(trail.get(trail.size() - 2));
+            }
+            if (parent == null) {
+                AntClient.getInstance().log("Incomplete dependency trail for " + artifact + ": " + trail,
+                        Project.MSG_VERBOSE);
+                return null;
+            }
+            if (StringUtils.isEmpty(artifact.getScope())) {
+                AntClient.getInstance().log("Dependency without scope: " + artifact, Project.MSG_VERBOSE);
+                return null;
+            }
+            Collection<Exclusion> exclusions = null;
+            if (parent == root) {
+                String key = ArtifactIdUtils.toVersionlessId(RepositoryUtils.toArtifact(artifact));
+                org.apache.maven.model.Dependency dependency = directDependencies.get(key);
+                exclusions = dependency != null ? dependency.getExclusions() : null;
+            }
+            DefaultDependencyNode node = new DefaultDependencyNode(pool.intern(RepositoryUtils.toDependency(artifact,
+                    exclusions)));
+            node.setRequestContext("AAMP graph");
+            node.setRepositories(project.getRemoteProjectRepositories());
+            parent.getChildren().add(node);
+            trailNodes.put(artifact.getId(), node);
+        }
+        AntClient.getInstance().log(
+                String.format("Reusing the %d dependencies resolved by Maven for %s", artifacts.size(), project),
+                Project.MSG_VERBOSE);
+        return root;
+    }
+
     /**
      * Resolve graph starting from its root nodes.
      *
      * @since 2.0
      */
     public void resolveDependencies(Filter filter, int depth) {
-        List<Node> oldRoots = new LinkedList<>(roots);
-        roots.clear();
-        nodes.clear();
-        for (Node root : oldRoots) {
-            resolveRootNode(root, filter, depth);
+        resolveDependencies(filter, depth, mojo.getResolveThreads());
+    }
+
+    /**
+     * Resolve the roots on up to {@code threads} concurrent threads. The results are added to the graph in the roots
+     * order, from the calling thread, so that the graph content does not depend on the threads scheduling.
+     * <p>
+     * The resolution is incremental: a root already resolved with {@link Filter#ANY} or an equal filter, and an equal
+     * or greater depth, is kept as is. Roots refused by the filter are removed from the graph; they are still
+     * candidates for the next resolutions, with another filter.
+     *
+     * @param threads maximum number of roots resolved at the same time; 1 or less for a sequential resolution
+     * @since 2.1.8
+     */
+    public void resolveDependencies(final Filter filter, final int depth, int threads) {
+        resolveDependencies(filter, depth, threads, false);
+    }
+
+    /**
+     * Same as {@link #resolveDependencies(Filter, int, int)}, optionally without resolving the artifact files.
+     * <p>
+     * In collect-only mode, the graph is built from the collected trees (conflicts already resolved) and the roots
+     * refused by the filter are removed, but no file is downloaded: the files are resolved when first used (see
+     * {@link Node#getFile()}).
+     * <p>
+     * Otherwise, if the prefetch is enabled (see {@link #isPrefetchEnabled()}), the graph is built the same way and
+     * the files of the nodes accepted by the filter, down to the depth, are downloaded in background.
+     *
+     * @param collectOnly whether to skip the resolution of the artifact files
+     * @since 2.1.8
+     */
+    public void resolveDependencies(final Filter filter, final int depth, int threads, boolean collectOnly) {
+        List<Node> keptRoots = new ArrayList<>();
+        List<Node> toResolve = new ArrayList<>();
+        List<Node> reused = new ArrayList<>();
+        Set<String> keptIds = new HashSet<>();
+        for (Node root : addedRoots) {
+            if (!filter.accept(root, null) || !keptIds.add(root.getId())) {
+                continue;
+            }
+            keptRoots.add(root);
+            if (isResolved(root, filter, depth, collectOnly)) {
+                reused.add(root);
+                AntClient.getInstance().log("Reusing resolved root node: " + root, Project.MSG_DEBUG);
+            } else {
+                toResolve.add(root);
+            }
+        }
+        // The nodes shared by a reused root and a root to resolve are resolved again
+        DependencyFilter dependencyFilter = DependencyUtils.newDependencyFilter(filter, depth);
+        Set<String> toResolveIds = getNodeIds(toResolve, dependencyFilter);
+        Set<String> reusedIds = getNodeIds(reused, dependencyFilter);
+        reusedIds.removeAll(toResolveIds);
+        resolvedNodes += toResolveIds.size();
+        reusedNodes += reusedIds.size();
+        List<DependencyResult> results = new ArrayList<>();
+        boolean prefetch = !collectOnly && isPrefetchEnabled();
+        if (collectOnly || prefetch) {
+            for (Node root : toResolve) {
+                results.add(new DependencyResult(new DependencyRequest(root, filter)));
+            }
+        } else if (threads <= 1 || toResolve.size() <= 1) {
+            for (Node root : toResolve) {
+                results.add(DependencyUtils.resolveDependencies(root, filter, depth));
+            }
+        } else {
+            results.addAll(resolveConcurrently(toResolve, filter, depth, threads));
+        }
+        // The resolution sets the files on the existing nodes: the graph only has to be updated if the filter keeps
+        // other roots than the previous one, or if the resolved trees contain nodes which are not in the graph yet
+        for (Node root : toResolve) {
+            addResolution(root, new Resolution(filter, depth, collectOnly));
+        }
+        if (!isRoots(keptRoots)) {
+            store.clear();
+            index.clear();
+            for (Node root : keptRoots) {
+                Node node = new Node(this, root.getDependencyNode());
+                setRoot(node);
+                addNode(node);
+            }
+        } else {
+            for (DependencyResult result : results) {
+                mergeNodes(result.getRoot());
+            }
+        }
+        if (prefetch) {
+            prefetchFiles(toResolve, filter, depth);
+        }
+        AntClient.getInstance().log(
+                String.format("%s %d node(s) of %d root(s), reused %d node(s) of %d root(s) (totals: %d %s, %d reused)",
+                        collectOnly ? "Collected" : "Resolved", toResolveIds.size(), toResolve.size(),
+                        reusedIds.size(), reused.size(), resolvedNodes, collectOnly ? "collected" : "resolved",
+                        reusedNodes),
+                Project.MSG_VERBOSE);
+    }
+
+    private boolean isResolved(Node root, Filter filter, int depth, boolean collectOnly) {
+        List<Resolution> previous = resolutions.get(unwrap(root));
+        if (previous != null) {
+            for (Resolution resolution : previous) {
+                if (resolution.covers(filter, depth, collectOnly)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Keeps the resolutions of the root with other filters, replacing the ones covered by the new resolution.
+     */
+    private void addResolution(Node root, Resolution resolution) {
+        List<Resolution> previous = resolutions.get(unwrap(root));
+        if (previous == null) {
+            previous = new ArrayList<>(1);
+            resolutions.put(unwrap(root), previous);
+        }
+        for (Iterator<Resolution> it = previous.iterator(); it.hasNext();) {
+            if (resolution.covers(it.next())) {
+                it.remove();
+            }
+        }
+        previous.add(resolution);
+    }
+
+    /**
+     * @return whether the graph roots are these ones, in that order
+     */
+    private boolean isRoots(List<Node> keptRoots) {
+        List<Node> roots = getRoots();
+        if (keptRoots.size() != roots.size()) {
+            return false;
+        }
+        Iterator<Node> it = roots.iterator();
+        for (Node root : keptRoots) {
+            if (!root.getId().equals(it.next().getId())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the IDs of the nodes of these trees accepted by the filter
+     */
+    private static Set<String> getNodeIds(List<Node> roots, DependencyFilter dependencyFilter) {
+        Set<String> ids = new HashSet<>();
+        for (Node root : roots) {
+            for (DependencyNode node : getResolvedNodes(root, dependencyFilter)) {
+                ids.add(Node.genNodeId(node));
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * Resolves the files of the roots with the same filtering as {@link DependencyUtils#resolveDependencies}, but
+     * downloading them on up to {@code threads} concurrent threads.
+     * <p>
+     * The roots may share nodes (subtrees of the same collected tree for instance): the nodes to resolve are listed
+     * from the calling thread and each artifact is requested only once, then the resolved artifacts are set on the
+     * nodes from the calling thread. The worker threads never read nor change the nodes.
+     */
+    private List<DependencyResult> resolveConcurrently(List<Node> toResolve, Filter filter, int depth, int threads) {
+        DependencyFilter dependencyFilter = DependencyUtils.newDependencyFilter(filter, depth);
+        Map<String, ArtifactRequest> requests = new LinkedHashMap<>();
+        Map<String, List<DependencyNode>> requesters = new HashMap<>();
+        List<List<String>> rootKeys = new ArrayList<>();
+        for (Node root : toResolve) {
+            List<String> keys = new ArrayList<>();
+            for (DependencyNode node : getResolvedNodes(root, dependencyFilter)) {
+                String key = ArtifactIdUtils.toId(node.getArtifact()) + ' ' + node.getRepositories();
+                if (!requests.containsKey(key)) {
+                    requests.put(key, new ArtifactRequest(node));
+                    requesters.put(key, new ArrayList<DependencyNode>());
+                }
+                List<DependencyNode> nodes = requesters.get(key);
+                if (!nodes.contains(node)) {
+                    nodes.add(node);
+                }
+                keys.add(key);
+            }
+            rootKeys.add(keys);
+        }
+        AntClient.getInstance().log(String.format("Resolving %d artifact(s) of %d root(s) on %d thread(s)",
+                requests.size(), toResolve.size(), threads), Project.MSG_DEBUG);
+        List<ArtifactResult> artifactResults = DependencyUtils.resolveRequests(new ArrayList<>(requests.values()),
+                threads);
+        Map<String, ArtifactResult> resultsByKey = new HashMap<>();
+        Iterator<String> keys = requests.keySet().iterator();
+        for (ArtifactResult artifactResult : artifactResults) {
+            String key = keys.next();
+            resultsByKey.put(key, artifactResult);
+            if (artifactResult.getArtifact() != null) {
+                for (DependencyNode node : requesters.get(key)) {
+                    node.setArtifact(artifactResult.getArtifact());
+                }
+            }
+        }
+        List<DependencyResult> results = new ArrayList<>();
+        for (int i = 0; i < toResolve.size(); i++) {
+            Node root = toResolve.get(i);
+            List<ArtifactResult> rootResults = new ArrayList<>();
+            List<ArtifactResult> failures = new ArrayList<>();
+            for (String key : rootKeys.get(i)) {
+                ArtifactResult artifactResult = resultsByKey.get(key);
+                rootResults.add(artifactResult);
+                if (!artifactResult.isResolved()) {
+                    failures.add(artifactResult);
+                }
+            }
+            if (!failures.isEmpty()) {
+                throw new BuildException("Cannot resolve dependency tree for " + root,
+                        new ArtifactResolutionException(failures));
+            }
+            DependencyResult result = new DependencyResult(new DependencyRequest(root, dependencyFilter));
+            result.setArtifactResults(rootResults);
+            results.add(result);
+        }
+        return results;
+    }
+
+    /**
+     * Adds to the graph the nodes of that tree which are not in the graph yet.
+     */
+    private void mergeNodes(DependencyNode root) {
+        Set<DependencyNode> visited = Collections.newSetFromMap(new IdentityHashMap<DependencyNode, Boolean>());
+        Deque<DependencyNode> stack = new ArrayDeque<>();
+        stack.push(root);
+        while (!stack.isEmpty()) {
+            DependencyNode node = stack.pop();
+            if (!visited.add(node)) {
+                continue;
+            }
+            if (getStoredNode(node) == null) {
+                addNode(new Node(this, node));
+            }
+            for (DependencyNode child : node.getChildren()) {
+                stack.push(child);
+            }
+        }
+    }
+
+    static DependencyNode unwrap(DependencyNode node) {
+        while (node instanceof Node) {
+            node = ((Node) node).getDependencyNode();
+        }
+        return node;
+    }
+
+    /**
+     * @return the number of nodes resolved (or collected only) by {@link #resolveDependencies(Filter, int, int)},
+     *         summed over the calls
+     * @since 2.1.8
+     */
+    public int getResolvedNodeCount() {
+        return resolvedNodes;
+    }
+
+    /**
+     * @return the number of nodes {@link #resolveDependencies(Filter, int, int)} did not resolve again because their
+     *         root had already been resolved with a covering filter and depth, summed over the calls
+     * @since 2.1.8
+     */
+    public int getReusedNodeCount() {
+        return reusedNodes;
+    }
+
+    /**
+     * Filter and depth a root has been resolved with, and whether its files have been resolved.
+     */
+    private static class Resolution {
+
+        final Object filter;
+
+        final int depth;
+
+        final boolean collectOnly;
+
+        Resolution(Filter filter, int depth, boolean collectOnly) {
+            // The filters of the Ant tasks are mutable
+            this.filter = ResolutionMemo.copy(filter);
+            this.depth = depth;
+            this.collectOnly = collectOnly;
+        }
+
+        boolean covers(Filter otherFilter, int otherDepth, boolean otherCollectOnly) {
+            return coversCopy(ResolutionMemo.copy(otherFilter), otherDepth, otherCollectOnly);
+        }
+
+        boolean covers(Resolution other) {
+            return coversCopy(other.filter, other.depth, other.collectOnly);
+        }
+
+        private boolean coversCopy(Object otherFilter, int otherDepth, boolean otherCollectOnly) {
+            return (filter == Filter.ANY || filter.equals(otherFilter)) && depth >= otherDepth
+                    && (!collectOnly || otherCollectOnly);
         }
     }
 
@@ -393,7 +1168,7 @@ public class Graph {
      * @since 2.0
      */
     public Node getNode(Dependency dependency) {
-        return nodes.get(Node.genNodeId(dependency));
+        return getStoredNode(Node.genNodeId(dependency));
     }
 
     /**
@@ -0,0 +1,535 @@
+/*
+ * (C) Copyright 2017 Nuxeo SA (http://nuxeo.com/) and contributors.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser General Public License
+ * (LGPL) version 2.1 which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/lgpl-2.1.html
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ */
+package org.nuxeo.build.maven.graph;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.tools.ant.Project;
+import org.eclipse.aether.artifact.Artifact;
+import org.eclipse.aether.artifact.DefaultArtifact;
+import org.eclipse.aether.collection.CollectRequest;
+import org.eclipse.aether.graph.DefaultDependencyNode;
+import org.eclipse.aether.graph.Dependency;
+import org.eclipse.aether.graph.DependencyNode;
+import org.eclipse.aether.graph.Exclusion;
+import org.eclipse.aether.repository.RemoteRepository;
+import org.eclipse.aether.util.artifact.ArtifactIdUtils;
+import org.eclipse.aether.util.graph.manager.DependencyManagerUtils;
+import org.eclipse.aether.util.version.GenericVersionScheme;
+import org.eclipse.aether.version.InvalidVersionSpecificationException;
+import org.eclipse.aether.version.VersionScheme;
+
+import org.nuxeo.build.ant.AntClient;
+
+/**
+ * Persistent cache of collected dependency graphs. Each entry is keyed on a fingerprint of the {@link CollectRequest}
+ * (root, direct and managed dependencies, exclusions, repositories and session selection settings) and stored as a
+ * compact binary file. An entry whose fingerprint does not match the request any more is discarded.
+ * <p>
+ * The fingerprint does not cover the transitive POMs: a graph depending on a SNAPSHOT or resolving a version range
+ * below its root can change without any change of the request, so it is not stored (see
+ * {@link #isStorable(DependencyNode)}). Artifact files which do not exist any more are not restored.
+ * <p>
+ * Only the data read by the graph, the filters and the printers is kept: coordinates, scope, optional flag,
+ * exclusions, version and version constraint, managed bits, premanaged version and scope, repositories and request
+ * context. Relocations and aliases are not restored.
+ *
+ * @since 2.1.8
+ */
+public class GraphCache {
+
+    private static final int MAGIC = 0x41414d50; // AAMP
+
+    private static final int FORMAT_VERSION = 2;
+
+    private static final String EXTENSION = ".graph";
+
+    private static final VersionScheme VERSION_SCHEME = new GenericVersionScheme();
+
+    protected final File directory;
+
+    protected final String sessionDescription;
+
+    private final AtomicInteger hits = new AtomicInteger();
+
+    private final AtomicInteger misses = new AtomicInteger();
+
+    private final AtomicLong hitTime = new AtomicLong();
+
+    private final AtomicLong missTime = new AtomicLong();
+
+    /**
+     * @param directory where the cache entries are stored
+     * @param sessionDescription description of the session settings impacting the collection, part of the
+     *            fingerprint
+     */
+    public GraphCache(File directory, String sessionDescription) {
+        this.directory = directory;
+        this.sessionDescription = sessionDescription;
+    }
+
+    /**
+     * @return the cached graph for that request, or null if there is no up-to-date entry
+     */
+    public DependencyNode load(CollectRequest request) {
+        return load(request, new InternPool());
+    }
+
+    /**
+     * @param pool pool providing the artifacts and dependencies of the returned graph
+     * @return the cached graph for that request, or null if there is no up-to-date entry
+     * @since 2.1.8
+     */
+    public DependencyNode load(CollectRequest request, InternPool pool) {
+        long start = System.currentTimeMillis();
+        File file = getFile(request);
+        if (!file.isFile()) {
+            return null;
+        }
+        String fingerprint = fingerprint(request);
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(file.toPath()))) {
+            DependencyNode root = decode(in, fingerprint, request, pool);
+            if (root == null) {
+                AntClient.getInstance().log("Discarding stale graph cache entry " + file, Project.MSG_DEBUG);
+                Files.deleteIfExists(file.toPath());
+                return null;
+            }
+            long time = System.currentTimeMillis() - start;
+            hits.incrementAndGet();
+            hitTime.addAndGet(time);
+            AntClient.getInstance().log(String.format("Graph cache hit for %s (%d ms)", request.getRoot(), time),
+                    Project.MSG_VERBOSE);
+            return root;
+        } catch (IOException | RuntimeException e) {
+            AntClient.getInstance().log("Ignoring unreadable graph cache entry " + file + ": " + e,
+                    Project.MSG_WARN);
+            file.delete();
+            return null;
+        }
+    }
+
+    /**
+     * Stores the result of a collection.
+     *
+     * @param collectTime time spent collecting, for statistics
+     */
+    public void store(CollectRequest request, DependencyNode root, long collectTime) {
+        misses.incrementAndGet();
+        missTime.addAndGet(collectTime);
+        if (!isStorable(root)) {
+            AntClient.getInstance().log(String.format("Graph of %s not cached: it has SNAPSHOT or range versions",
+                    request.getRoot()), Project.MSG_VERBOSE);
+            return;
+        }
+        File file = getFile(request);
+        try {
+            Files.createDirectories(directory.toPath());
+            File tmp = File.createTempFile(file.getName(), ".tmp", directory);
+            try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(tmp.toPath()))) {
+                encode(out, fingerprint(request), root);
+            }
+            Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            AntClient.getInstance().log(
+                    String.format("Graph cache miss for %s (%d ms), stored in %s", request.getRoot(), collectTime,
+                            file), Project.MSG_VERBOSE);
+        } catch (IOException e) {
+            AntClient.getInstance().log("Cannot write graph cache entry " + file + ": " + e, Project.MSG_WARN);
+        }
+    }
+
+    /**
+     * @return false if a node below the root has a SNAPSHOT version or has been resolved from a version range: the
+     *         graph may then change while the request does not
+     */
+    public static boolean isStorable(DependencyNode root) {
+        List<DependencyNode> nodes = new ArrayList<>();
+        Map<DependencyNode, Integer> indexes = new IdentityHashMap<>();
+        index(root, nodes, indexes);
+        for (DependencyNode node : nodes) {
+            if (node == root) {
+                continue;
+            }
+            if (node.getArtifact() != null && node.getArtifact().isSnapshot()) {
+                return false;
+            }
+            if (node.getVersionConstraint() != null && node.getVersionConstraint().getRange() != null) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * One file per root: a request on the same root with a different fingerprint replaces the previous entry.
+     */
+    protected File getFile(CollectRequest request) {
+        Artifact root = request.getRoot() != null ? request.getRoot().getArtifact() : request.getRootArtifact();
+        String name = ArtifactIdUtils.toId(root) + '@' + request.getRequestContext();
+        return new File(directory, name.replaceAll("[^\\w.@-]", "_") + EXTENSION);
+    }
+
+    public int getHits() {
+        return hits.get();
+    }
+
+    public int getMisses() {
+        return misses.get();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Graph cache %s: %d hit(s) in %d ms, %d miss(es) collected in %d ms", directory,
+                hits.get(), hitTime.get(), misses.get(), missTime.get());
+    }
+
+    /**
+     * @return a SHA-1 digest of everything in the request and the session which impacts the collected graph
+     */
+    public String fingerprint(CollectRequest request) {
+        return fingerprint(request, sessionDescription);
+    }
+
+    /**
+     * @param sessionDescription description of the session settings impacting the collection
+     * @since 2.1.8
+     */
+    public static String fingerprint(CollectRequest request, String sessionDescription) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(sessionDescription).append('\n');
+        sb.append(request.getRequestContext()).append('\n');
+        if (request.getRootArtifact() != null) {
+            sb.append(request.getRootArtifact()).append('\n');
+        }
+        if (request.getRoot() != null) {
+            append(sb.append("root "), request.getRoot());
+        }
+        for (Dependency dependency : request.getDependencies()) {
+            append(sb.append("dependency "), dependency);
+        }
+        for (Dependency dependency : request.getManagedDependencies()) {
+            append(sb.append("managed "), dependency);
+        }
+        for (RemoteRepository repository : request.getRepositories()) {
+            sb.append("repository ").append(repository.getId()).append(' ').append(repository.getUrl()).append('\n');
+        }
+        return sha1(sb.toString());
+    }
+
+    /**
+     * @return the hexadecimal SHA-1 digest of the value
+     * @since 2.1.8
+     */
+    static String sha1(String value) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-1");
+            StringBuilder hex = new StringBuilder();
+            for (byte b : digest.digest(value.getBytes(StandardCharsets.UTF_8))) {
+                hex.append(String.format("%02x", b));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void append(StringBuilder sb, Dependency dependency) {
+        sb.append(dependency.getArtifact()).append(' ').append(dependency.getScope());
+        sb.append(' ').append(dependency.getOptional());
+        for (Exclusion exclusion : dependency.getExclusions()) {
+            sb.append(" -").append(exclusion);
+        }
+        sb.append('\n');
+    }
+
+    /**
+     * Writes the graph with a string table: nodes are listed in preorder, then the children of each node as indexes.
+     * Shared nodes are written once.
+     */
+    public static void encode(OutputStream output, String fingerprint, DependencyNode root) throws IOException {
+        List<DependencyNode> nodes = new ArrayList<>();
+        Map<DependencyNode, Integer> indexes = new IdentityHashMap<>();
+        index(root, nodes, indexes);
+        StringTable strings = new StringTable();
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(body);
+        out.writeInt(nodes.size());
+        for (DependencyNode node : nodes) {
+            writeNode(out, strings, node);
+        }
+        for (DependencyNode node : nodes) {
+            out.writeInt(node.getChildren().size());
+            for (DependencyNode child : node.getChildren()) {
+                out.writeInt(indexes.get(child));
+            }
+        }
+        out.flush();
+        DataOutputStream header = new DataOutputStream(output);
+        header.writeInt(MAGIC);
+        header.writeInt(FORMAT_VERSION);
+        header.writeUTF(fingerprint);
+        header.writeInt(strings.values.size());
+        for (String value : strings.values) {
+            header.writeUTF(value);
+        }
+        body.writeTo(header);
+        header.flush();
+    }
+
+    /**
+     * @return the decoded graph, or null if the entry has been written with another fingerprint or format
+     */
+    public static DependencyNode decode(InputStream input, String fingerprint, CollectRequest request)
+            throws IOException {
+        return decode(input, fingerprint, request, new InternPool());
+    }
+
+    /**
+     * @param pool pool providing the strings, artifacts and dependencies of the decoded graph
+     * @return the decoded graph, or null if the entry has been written with another fingerprint or format
+     * @since 2.1.8
+     */
+    public static DependencyNode decode(InputStream input, String fingerprint, CollectRequest request,
+            InternPool pool) throws IOException {
+        DataInputStream in = new DataInputStream(input);
+        if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION || !in.readUTF().equals(fingerprint)) {
+            return null;
+        }
+        String[] strings = new String[in.readInt()];
+        for (int i = 0; i < strings.length; i++) {
+            strings[i] = pool.intern(in.readUTF());
+        }
+        Map<String, RemoteRepository> repositories = new HashMap<>();
+        for (RemoteRepository repository : request.getRepositories()) {
+            repositories.put(repository.getId(), repository);
+        }
+        DependencyNode[] nodes = new DependencyNode[in.readInt()];
+        for (int i = 0; i < nodes.length; i++) {
+            nodes[i] = readNode(in, strings, repositories, pool);
+        }
+        for (DependencyNode node : nodes) {
+            int size = in.readInt();
+            List<DependencyNode> children = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                children.add(nodes[in.readInt()]);
+            }
+            node.setChildren(children);
+        }
+        return nodes.length > 0 ? nodes[0] : null;
+    }
+
+    /**
+     * Same as {@link #decode(InputStream, String, CollectRequest)} on an in-memory entry.
+     */
+    public static DependencyNode decode(byte[] bytes, String fingerprint, CollectRequest request) throws IOException {
+        return decode(new ByteArrayInputStream(bytes), fingerprint, request);
+    }
+
+    /**
+     * Same as {@link #decode(InputStream, String, CollectRequest, InternPool)} on an in-memory entry.
+     *
+     * @since 2.1.8
+     */
+    public static DependencyNode decode(byte[] bytes, String fingerprint, CollectRequest request, InternPool pool)
+            throws IOException {
+        return decode(new ByteArrayInputStream(bytes), fingerprint, request, pool);
+    }
+
+    private static void index(DependencyNode root, List<DependencyNode> nodes, Map<DependencyNode, Integer> indexes) {
+        List<DependencyNode> stack = new ArrayList<>();
+        stack.add(root);
+        while (!stack.isEmpty()) {
+            DependencyNode node = stack.remove(stack.size() - 1);
+            if (indexes.containsKey(node)) {
+                continue;
+            }
+            indexes.put(node, nodes.size());
+            nodes.add(node);
+            List<DependencyNode> children = node.getChildren();
+            for (int i = children.size() - 1; i >= 0; i--) {
+                stack.add(children.get(i));
+            }
+        }
+    }
+
+    private static void writeNode(DataOutputStream out, StringTable strings, DependencyNode node) throws IOException {
+        Artifact artifact = node.getArtifact();
+        out.writeInt(strings.get(artifact.getGroupId()));
+        out.writeInt(strings.get(artifact.getArtifactId()));
+        out.writeInt(strings.get(artifact.getClassifier()));
+        out.writeInt(strings.get(artifact.getExtension()));
+        out.writeInt(strings.get(artifact.getVersion()));
+        out.writeInt(strings.get(artifact.getFile() != null ? artifact.getFile().getPath() : null));
+        Map<String, String> properties = artifact.getProperties();
+        out.writeInt(properties.size());
+        for (Map.Entry<String, String> property : properties.entrySet()) {
+            out.writeInt(strings.get(property.getKey()));
+            out.writeInt(strings.get(property.getValue()));
+        }
+        Dependency dependency = node.getDependency();
+        out.writeBoolean(dependency != null);
+        if (dependency != null) {
+            out.writeInt(strings.get(dependency.getScope()));
+            Boolean optional = dependency.getOptional();
+            out.writeByte(optional == null ? -1 : optional ? 1 : 0);
+            Collection<Exclusion> exclusions = dependency.getExclusions();
+            out.writeInt(exclusions.size());
+            for (Exclusion exclusion : exclusions) {
+                out.writeInt(strings.get(exclusion.getGroupId()));
+                out.writeInt(strings.get(exclusion.getArtifactId()));
+                out.writeInt(strings.get(exclusion.getClassifier()));
+                out.writeInt(strings.get(exclusion.getExtension()));
+            }
+        }
+        out.writeInt(strings.get(node.getVersion() != null ? node.getVersion().toString() : null));
+        out.writeInt(strings.get(node.getVersionConstraint() != null ? node.getVersionConstraint().toString() : null));
+        out.writeInt(node.getManagedBits());
+        out.writeInt(strings.get(DependencyManagerUtils.getPremanagedVersion(node)));
+        out.writeInt(strings.get(DependencyManagerUtils.getPremanagedScope(node)));
+        out.writeInt(strings.get(node.getRequestContext()));
+        out.writeInt(node.getRepositories().size());
+        for (RemoteRepository repository : node.getRepositories()) {
+            out.writeInt(strings.get(repository.getId()));
+            out.writeInt(strings.get(repository.getContentType()));
+            out.writeInt(strings.get(repository.getUrl()));
+        }
+    }
+
+    private static DependencyNode readNode(DataInputStream in, String[] strings,
+            Map<String, RemoteRepository> repositories, InternPool pool) throws IOException {
+        String groupId = read(in, strings);
+        String artifactId = read(in, strings);
+        String classifier = read(in, strings);
+        String extension = read(in, strings);
+        String version = read(in, strings);
+        String path = read(in, strings);
+        int size = in.readInt();
+        Map<String, String> properties = new HashMap<>();
+        for (int i = 0; i < size; i++) {
+            properties.put(read(in, strings), read(in, strings));
+        }
+        Artifact artifact = pool.intern(new DefaultArtifact(groupId, artifactId, classifier, extension, version,
+                properties, toFile(path)));
+        DefaultDependencyNode node;
+        if (in.readBoolean()) {
+            String scope = read(in, strings);
+            byte optional = in.readByte();
+            size = in.readInt();
+            List<Exclusion> exclusions = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                exclusions.add(new Exclusion(read(in, strings), read(in, strings), read(in, strings),
+                        read(in, strings)));
+            }
+            node = new DefaultDependencyNode(pool.intern(new Dependency(artifact, scope, optional < 0 ? null
+                    : optional == 1, exclusions)));
+        } else {
+            node = new DefaultDependencyNode(artifact);
+        }
+        String nodeVersion = read(in, strings);
+        String versionConstraint = read(in, strings);
+        try {
+            if (nodeVersion != null) {
+                node.setVersion(VERSION_SCHEME.parseVersion(nodeVersion));
+            }
+            if (versionConstraint != null) {
+                node.setVersionConstraint(VERSION_SCHEME.parseVersionConstraint(versionConstraint));
+            }
+        } catch (InvalidVersionSpecificationException e) {
+            throw new IOException(e);
+        }
+        node.setManagedBits(in.readInt());
+        String premanagedVersion = read(in, strings);
+        if (premanagedVersion != null) {
+            node.setData(DependencyManagerUtils.NODE_DATA_PREMANAGED_VERSION, premanagedVersion);
+        }
+        String premanagedScope = read(in, strings);
+        if (premanagedScope != null) {
+            node.setData(DependencyManagerUtils.NODE_DATA_PREMANAGED_SCOPE, premanagedScope);
+        }
+        node.setRequestContext(read(in, strings));
+        size = in.readInt();
+        List<RemoteRepository> nodeRepositories = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            String id = read(in, strings);
+            String contentType = read(in, strings);
+            String url = read(in, strings);
+            // Prefer the request repositories which hold the authentication, proxy and mirror settings
+            RemoteRepository repository = repositories.get(id);
+            if (repository == null || !url.equals(repository.getUrl())) {
+                repository = new RemoteRepository.Builder(id, contentType, url).build();
+            }
+            nodeRepositories.add(repository);
+        }
+        node.setRepositories(nodeRepositories);
+        return node;
+    }
+
+    /**
+     * @return the stored artifact file, null if it has been deleted since then and must be resolved again
+     */
+    private static File toFile(String path) {
+        if (path == null) {
+            return null;
+        }
+        File file = new File(path);
+        return file.exists() ? file : null;
+    }
+
+    private static String read(DataInputStream in, String[] strings) throws IOException {
+        int index = in.readInt();
+        return index < 0 ? null : strings[index];
+    }
+
+    private static class StringTable {
+
+        final List<String> values = new ArrayList<>();
+
+        final Map<String, Integer> indexes = new HashMap<>();
+
+        int get(String value) {
+            if (value == null) {
+                return -1;
+            }
+            Integer index = indexes.get(value);
+            if (index == null) {
+                index = values.size();
+                values.add(value);
+                indexes.put(value, index);
+            }
+            return index;
+        }
+    }
+
+}
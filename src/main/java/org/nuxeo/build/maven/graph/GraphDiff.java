@@ -0,0 +1,197 @@
+/*
+ * (C) Copyright 2017 Nuxeo SA (http://nuxeo.com/) and contributors.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser General Public License
+ * (LGPL) version 2.1 which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/lgpl-2.1.html
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ */
+package org.nuxeo.build.maven.graph;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Structural difference between two dependency graphs, computed from their node IDs (see
+ * {@link Node#genNodeId(org.eclipse.aether.graph.DependencyNode)}) in linear time: the nodes are matched on their
+ * version-less coordinates "groupId:artifactId:extension:classifier", then compared on version and scope.
+ * <p>
+ * A graph can be saved as a snapshot, one node ID per line, to be compared with the graph of a later build. When a
+ * graph holds several nodes with the same version-less coordinates, the first one is compared.
+ *
+ * @since 2.1.8
+ */
+public class GraphDiff {
+
+    private final List<String> added = new ArrayList<>();
+
+    private final List<String> removed = new ArrayList<>();
+
+    private final Map<String, String> versionChanges = new LinkedHashMap<>();
+
+    private final Map<String, String> scopeChanges = new LinkedHashMap<>();
+
+    protected GraphDiff() {
+    }
+
+    /**
+     * @param oldIds node IDs of the previous graph
+     * @param newIds node IDs of the current graph
+     */
+    public static GraphDiff compare(Collection<String> oldIds, Collection<String> newIds) {
+        GraphDiff diff = new GraphDiff();
+        Map<String, String[]> oldNodes = index(oldIds);
+        Map<String, String[]> newNodes = index(newIds);
+        for (Map.Entry<String, String[]> entry : newNodes.entrySet()) {
+            String[] newNode = entry.getValue();
+            String[] oldNode = oldNodes.remove(entry.getKey());
+            if (oldNode == null) {
+                diff.added.add(newNode[0]);
+            } else if (!oldNode[3].equals(newNode[3])) {
+                diff.versionChanges.put(oldNode[0], newNode[0]);
+            } else if (!oldNode[6].equals(newNode[6])) {
+                diff.scopeChanges.put(oldNode[0], newNode[0]);
+            }
+        }
+        for (String[] oldNode : oldNodes.values()) {
+            diff.removed.add(oldNode[0]);
+        }
+        return diff;
+    }
+
+    public static GraphDiff compare(Graph oldGraph, Graph newGraph) {
+        return compare(getIds(oldGraph), getIds(newGraph));
+    }
+
+    /**
+     * @return node ID followed by its parts: groupId, artifactId, version, extension, classifier, scope; indexed by
+     *         version-less coordinates
+     */
+    private static Map<String, String[]> index(Collection<String> ids) {
+        Map<String, String[]> index = new LinkedHashMap<>();
+        for (String id : ids) {
+            String[] parts = id.split(":", 6);
+            if (parts.length < 6) {
+                continue;
+            }
+            String[] node = new String[7];
+            node[0] = id;
+            System.arraycopy(parts, 0, node, 1, 6);
+            String key = parts[0] + ':' + parts[1] + ':' + parts[3] + ':' + parts[4];
+            if (!index.containsKey(key)) {
+                index.put(key, node);
+            }
+        }
+        return index;
+    }
+
+    /**
+     * @return the IDs of the graph nodes
+     */
+    public static List<String> getIds(Graph graph) {
+        List<String> ids = new ArrayList<>();
+        for (Node node : graph.getNodes()) {
+            ids.add(node.getId());
+        }
+        return ids;
+    }
+
+    public static void saveSnapshot(Graph graph, File file) throws IOException {
+        File parent = file.getParentFile();
+        if (parent != null) {
+            Files.createDirectories(parent.toPath());
+        }
+        try (BufferedWriter writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)) {
+            for (String id : getIds(graph)) {
+                writer.write(id);
+                writer.newLine();
+            }
+        }
+    }
+
+    /**
+     * @return the node IDs saved in the snapshot, empty if the file does not exist
+     */
+    public static List<String> loadSnapshot(File file) throws IOException {
+        if (!file.isFile()) {
+            return Collections.emptyList();
+        }
+        List<String> ids = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (!line.isEmpty() && !line.startsWith("#")) {
+                    ids.add(line);
+                }
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * @return IDs of the nodes only in the current graph
+     */
+    public List<String> getAdded() {
+        return added;
+    }
+
+    /**
+     * @return IDs of the nodes only in the previous graph
+     */
+    public List<String> getRemoved() {
+        return removed;
+    }
+
+    /**
+     * @return previous node IDs mapped to the current node IDs with another version
+     */
+    public Map<String, String> getVersionChanges() {
+        return versionChanges;
+    }
+
+    /**
+     * @return previous node IDs mapped to the current node IDs with the same version but another scope
+     */
+    public Map<String, String> getScopeChanges() {
+        return scopeChanges;
+    }
+
+    public boolean isEmpty() {
+        return added.isEmpty() && removed.isEmpty() && versionChanges.isEmpty() && scopeChanges.isEmpty();
+    }
+
+    /**
+     * @return the file name of the artifact of that node ID: "artifactId-version[-classifier].extension"
+     */
+    public static String getFileName(String id) {
+        String[] parts = id.split(":", 6);
+        StringBuilder sb = new StringBuilder(parts[1]).append('-').append(parts[2]);
+        if (!parts[4].isEmpty()) {
+            sb.append('-').append(parts[4]);
+        }
+        return sb.append('.').append(parts[3]).toString();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d added, %d removed, %d version change(s), %d scope change(s)", added.size(),
+                removed.size(), versionChanges.size(), scopeChanges.size());
+    }
+
+}
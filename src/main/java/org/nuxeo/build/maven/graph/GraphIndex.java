@@ -0,0 +1,198 @@
+/*
+ * (C) Copyright 2017 Nuxeo SA (http://nuxeo.com/) and contributors.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser General Public License
+ * (LGPL) version 2.1 which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/lgpl-2.1.html
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ */
+package org.nuxeo.build.maven.graph;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.maven.artifact.versioning.DefaultArtifactVersion;
+import org.eclipse.aether.artifact.Artifact;
+import org.eclipse.aether.artifact.ArtifactProperties;
+
+import org.nuxeo.build.maven.ArtifactDescriptor;
+
+/**
+ * Secondary indexes on the {@link Graph} nodes: by artifactId, by groupId and by type. The buckets are not sorted:
+ * only the node with the highest version (then the highest ID) of each bucket is kept, computed on the first lookup
+ * and then updated by the additions. The other nodes are compared only when that one does not match the descriptor.
+ * <p>
+ * The versions are compared on the artifact base version, which is not changed when the node file is resolved (with a
+ * timestamped version for a SNAPSHOT); the equal ones are not parsed.
+ *
+ * @since 2.1.8
+ */
+class GraphIndex {
+
+    private static final class Bucket {
+
+        Node[] nodes = new Node[2];
+
+        int size;
+
+        /**
+         * Highest version node, null if not computed since the bucket was created.
+         */
+        Node highest;
+
+        void add(Node node) {
+            if (size == nodes.length) {
+                nodes = Arrays.copyOf(nodes, size * 2);
+            }
+            nodes[size++] = node;
+            if (highest != null && compare(node, highest) > 0) {
+                highest = node;
+            }
+        }
+
+        Node getHighest() {
+            if (highest == null) {
+                highest = nodes[0];
+                for (int i = 1; i < size; i++) {
+                    if (compare(nodes[i], highest) > 0) {
+                        highest = nodes[i];
+                    }
+                }
+            }
+            return highest;
+        }
+    }
+
+    /*
+     * The values are either the single node of the key, which is the most frequent case with the artifactIds, or a
+     * bucket.
+     */
+
+    private final Map<String, Object> byArtifactId = new HashMap<>();
+
+    private final Map<String, Object> byGroupId = new HashMap<>();
+
+    private final Map<String, Object> byType = new HashMap<>();
+
+    public void add(Node node) {
+        Artifact artifact = node.getArtifact();
+        add(byArtifactId, artifact.getArtifactId(), node);
+        add(byGroupId, artifact.getGroupId(), node);
+        add(byType, artifact.getExtension(), node);
+        String type = artifact.getProperty(ArtifactProperties.TYPE, null);
+        if (type != null && !type.equals(artifact.getExtension())) {
+            add(byType, type, node);
+        }
+    }
+
+    private static void add(Map<String, Object> index, String key, Node node) {
+        Object value = index.get(key);
+        if (value == null) {
+            index.put(key, node);
+        } else if (value instanceof Node) {
+            Bucket bucket = new Bucket();
+            bucket.add((Node) value);
+            bucket.add(node);
+            index.put(key, bucket);
+        } else {
+            ((Bucket) value).add(node);
+        }
+    }
+
+    /**
+     * @return whether {@link #find(ArtifactDescriptor)} applies to that descriptor: it has an artifactId, a groupId or
+     *         a type
+     */
+    public static boolean isIndexed(ArtifactDescriptor ad) {
+        return ad.getArtifactId() != null || ad.getGroupId() != null || ad.getType() != null;
+    }
+
+    /**
+     * @return the node with the highest version matching that descriptor, or null
+     * @see #isIndexed(ArtifactDescriptor)
+     */
+    public Node find(ArtifactDescriptor ad) {
+        Object value;
+        if (ad.getArtifactId() != null) {
+            value = byArtifactId.get(ad.getArtifactId());
+        } else if (ad.getGroupId() != null) {
+            value = byGroupId.get(ad.getGroupId());
+        } else {
+            value = byType.get(ad.getType());
+        }
+        if (value == null) {
+            return null;
+        } else if (value instanceof Node) {
+            Node node = (Node) value;
+            return matches(ad, node.getArtifact()) ? node : null;
+        }
+        Bucket bucket = (Bucket) value;
+        Node highest = bucket.getHighest();
+        if (matches(ad, highest.getArtifact())) {
+            return highest;
+        }
+        Node found = null;
+        for (int i = 0; i < bucket.size; i++) {
+            Node node = bucket.nodes[i];
+            if (matches(ad, node.getArtifact()) && (found == null || compare(node, found) > 0)) {
+                found = node;
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Compares on the base version, then on the ID.
+     */
+    static int compare(Node node1, Node node2) {
+        String version1 = node1.getArtifact().getBaseVersion();
+        String version2 = node2.getArtifact().getBaseVersion();
+        int result = 0;
+        if (!version1.equals(version2)) {
+            result = new DefaultArtifactVersion(version1).compareTo(new DefaultArtifactVersion(version2));
+        }
+        if (result == 0) {
+            result = node1.getId().compareTo(node2.getId());
+        }
+        return result;
+    }
+
+    /**
+     * Same criteria as {@link Graph#findNode(ArtifactDescriptor)}, compared on the Aether artifact. The type matches
+     * the extension, as in the Maven artifact of the node, or the dependency type (such as "test-jar"); the version
+     * matches the version or the base version, so that a resolved SNAPSHOT is still found by its SNAPSHOT version.
+     */
+    public static boolean matches(ArtifactDescriptor ad, Artifact artifact) {
+        if (ad.getArtifactId() != null && !ad.getArtifactId().equals(artifact.getArtifactId())) {
+            return false;
+        }
+        if (ad.getGroupId() != null && !ad.getGroupId().equals(artifact.getGroupId())) {
+            return false;
+        }
+        if (ad.getVersion() != null && !ad.getVersion().equals(artifact.getVersion())
+                && !ad.getVersion().equals(artifact.getBaseVersion())) {
+            return false;
+        }
+        if (ad.getType() != null && !ad.getType().equals(artifact.getExtension())
+                && !ad.getType().equals(artifact.getProperty(ArtifactProperties.TYPE, null))) {
+            return false;
+        }
+        if (ad.getClassifier() != null) {
+            return ad.getClassifier().equals(artifact.getClassifier());
+        }
+        return artifact.getClassifier().isEmpty();
+    }
+
+    public void clear() {
+        byArtifactId.clear();
+        byGroupId.clear();
+        byType.clear();
+    }
+
+}
@@ -0,0 +1,206 @@
+/*
+ * (C) Copyright 2017 Nuxeo SA (http://nuxeo.com/) and contributors.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser General Public License
+ * (LGPL) version 2.1 which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/lgpl-2.1.html
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ */
+package org.nuxeo.build.maven.graph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Read-only queries on a {@link Graph}: reverse dependencies, shortest path from a root, depth and subtree membership.
+ * <p>
+ * The depth and shortest path of every node are computed once, with a breadth-first traversal from the roots, when the
+ * query is built. Reverse dependencies use the parent adjacency of the {@link GraphStore}; the transitive sets are
+ * computed on first use and kept. A query is obtained with {@link Graph#getQuery()} which builds a new one after the
+ * graph changed.
+ *
+ * @since 2.1.8
+ */
+public class GraphQuery {
+
+    private final GraphStore store;
+
+    private final int[] depths;
+
+    private final int[] predecessors;
+
+    private final Map<Integer, BitSet> subtrees = new HashMap<>();
+
+    private final Map<Integer, BitSet> dependents = new HashMap<>();
+
+    GraphQuery(GraphStore store, List<Node> roots) {
+        this.store = store;
+        int size = store.size();
+        depths = new int[size];
+        predecessors = new int[size];
+        Arrays.fill(depths, -1);
+        Arrays.fill(predecessors, -1);
+        int[] queue = new int[size];
+        int head = 0;
+        int tail = 0;
+        for (Node root : roots) {
+            int index = store.indexOf(root.getId());
+            if (index >= 0 && depths[index] < 0) {
+                depths[index] = 0;
+                queue[tail++] = index;
+            }
+        }
+        while (head < tail) {
+            int index = queue[head++];
+            for (int child : store.getChildren(index)) {
+                if (depths[child] < 0) {
+                    depths[child] = depths[index] + 1;
+                    predecessors[child] = index;
+                    queue[tail++] = child;
+                }
+            }
+        }
+    }
+
+    private int indexOf(Node node) {
+        int index = node == null ? -1 : store.indexOf(node.getId());
+        return index < depths.length ? index : -1;
+    }
+
+    private List<Node> toNodes(BitSet indexes) {
+        List<Node> list = new ArrayList<>(indexes.cardinality());
+        for (int i = indexes.nextSetBit(0); i >= 0; i = indexes.nextSetBit(i + 1)) {
+            Node node = store.get(i);
+            if (node != null) {
+                list.add(node);
+            }
+        }
+        return list;
+    }
+
+    /**
+     * @return the shortest distance from a root to that node: 0 for a root, -1 if the node is not reachable from the
+     *         roots or not in the graph
+     */
+    public int getDepth(Node node) {
+        int index = indexOf(node);
+        return index < 0 ? -1 : depths[index];
+    }
+
+    /**
+     * @return one of the shortest paths from a root to that node, starting with the root and ending with the node;
+     *         empty if the node is not reachable from the roots
+     */
+    public List<Node> getPath(Node node) {
+        int index = indexOf(node);
+        if (index < 0 || depths[index] < 0) {
+            return Collections.emptyList();
+        }
+        Node[] path = new Node[depths[index] + 1];
+        for (int i = path.length - 1; i >= 0; i--) {
+            path[i] = store.get(index);
+            index = predecessors[index];
+        }
+        return Arrays.asList(path);
+    }
+
+    /**
+     * @return the nodes directly depending on that node
+     */
+    public List<Node> getDependents(Node node) {
+        int index = indexOf(node);
+        if (index < 0) {
+            return Collections.emptyList();
+        }
+        BitSet parents = new BitSet();
+        for (int i = 0; i < store.getParentCount(index); i++) {
+            parents.set(store.getParent(index, i));
+        }
+        return toNodes(parents);
+    }
+
+    /**
+     * @return the nodes depending directly or transitively on that node
+     */
+    public synchronized List<Node> getAllDependents(Node node) {
+        int index = indexOf(node);
+        if (index < 0) {
+            return Collections.emptyList();
+        }
+        BitSet closure = dependents.get(index);
+        if (closure == null) {
+            closure = new BitSet();
+            int[] queue = new int[depths.length];
+            int head = 0;
+            int tail = 0;
+            closure.set(index);
+            queue[tail++] = index;
+            while (head < tail) {
+                int current = queue[head++];
+                for (int i = 0; i < store.getParentCount(current); i++) {
+                    int parent = store.getParent(current, i);
+                    if (!closure.get(parent)) {
+                        closure.set(parent);
+                        queue[tail++] = parent;
+                    }
+                }
+            }
+            closure.clear(index);
+            dependents.put(index, closure);
+        }
+        return toNodes(closure);
+    }
+
+    /**
+     * @return the nodes reachable from that node, including itself
+     */
+    public List<Node> getSubtree(Node node) {
+        int index = indexOf(node);
+        if (index < 0) {
+            return Collections.emptyList();
+        }
+        return toNodes(getSubtree(index));
+    }
+
+    /**
+     * @return true if the node is reachable from the given subtree root (or is that root)
+     */
+    public boolean isInSubtree(Node root, Node node) {
+        int rootIndex = indexOf(root);
+        int index = indexOf(node);
+        return rootIndex >= 0 && index >= 0 && getSubtree(rootIndex).get(index);
+    }
+
+    private synchronized BitSet getSubtree(int root) {
+        BitSet subtree = subtrees.get(root);
+        if (subtree == null) {
+            subtree = new BitSet();
+            int[] queue = new int[depths.length];
+            int head = 0;
+            int tail = 0;
+            subtree.set(root);
+            queue[tail++] = root;
+            while (head < tail) {
+                for (int child : store.getChildren(queue[head++])) {
+                    if (!subtree.get(child)) {
+                        subtree.set(child);
+                        queue[tail++] = child;
+                    }
+                }
+            }
+            subtrees.put(root, subtree);
+        }
+        return subtree;
+    }
+
+}
@@ -0,0 +1,182 @@
+/*
+ * (C) Copyright 2017 Nuxeo SA (http://nuxeo.com/) and contributors.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser General Public License
+ * (LGPL) version 2.1 which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/lgpl-2.1.html
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ */
+package org.nuxeo.build.maven.graph;
+
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+import org.apache.tools.ant.BuildException;
+import org.apache.tools.ant.Project;
+
+import org.nuxeo.build.ant.AntClient;
+import org.nuxeo.build.maven.filter.Filter;
+
+/**
+ * Graphs built by the Ant tasks (printed sources, expanded keys, resolved files...), so that the tasks working on the
+ * same roots reuse the graph already collected or resolved instead of building it again.
+ * <p>
+ * Automatic entries are keyed by their roots description, filter and depth; the least recently used ones are evicted
+ * above the maximum size. Graphs registered with an explicit ID (Ant "graphid" attributes) are not evicted: they are
+ * looked up with {@link #get(String)} (Ant "graphref" attributes) until removed.
+ *
+ * @since 2.1.8
+ */
+public class GraphRegistry {
+
+    private final int maxSize;
+
+    private final LinkedHashMap<Key, Graph> graphs = new LinkedHashMap<>(16, 0.75f, true);
+
+    /**
+     * Graph each automatic entry has been built from, if any.
+     */
+    private final Map<Graph, Graph> sources = new IdentityHashMap<>();
+
+    private final Map<String, Graph> namedGraphs = new HashMap<>();
+
+    private int hits;
+
+    private int misses;
+
+    private int evictions;
+
+    public GraphRegistry(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    private static class Key {
+
+        final String roots;
+
+        final Object filter;
+
+        final int depth;
+
+        Key(String roots, Filter filter, int depth) {
+            this.roots = roots;
+            // The filters of the Ant tasks are mutable
+            this.filter = ResolutionMemo.copy(filter);
+            this.depth = depth;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) obj;
+            return depth == other.depth && roots.equals(other.roots) && Objects.equals(filter, other.filter);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(roots, filter, depth);
+        }
+    }
+
+    /**
+     * @param roots description of the graph roots, usually their keys
+     * @param filter filter the graph has been resolved or collected with, null if only collected or resolved
+     *            incrementally (see {@link Graph#resolveDependencies(Filter, int, int)})
+     * @param depth depth the graph has been resolved with, 0 if only collected or resolved incrementally
+     * @return the graph built for that roots, filter and depth, or null
+     */
+    public synchronized Graph get(String roots, Filter filter, int depth) {
+        Graph graph = graphs.get(new Key(roots, filter, depth));
+        if (graph == null) {
+            misses++;
+        } else {
+            hits++;
+            AntClient.getInstance().log("Reusing graph of " + roots, Project.MSG_DEBUG);
+        }
+        return graph;
+    }
+
+    public synchronized void put(String roots, Filter filter, int depth, Graph graph) {
+        put(roots, filter, depth, graph, null);
+    }
+
+    /**
+     * @param source graph the roots have been taken from, null if none; see {@link #removeDerived(Graph)}
+     */
+    public synchronized void put(String roots, Filter filter, int depth, Graph graph, Graph source) {
+        if (maxSize <= 0) {
+            return;
+        }
+        Graph previous = graphs.put(new Key(roots, filter, depth), graph);
+        if (previous != null) {
+            sources.remove(previous);
+        }
+        if (source != null) {
+            sources.put(graph, source);
+        }
+        for (Iterator<Graph> it = graphs.values().iterator(); graphs.size() > maxSize && it.hasNext();) {
+            sources.remove(it.next());
+            it.remove();
+            evictions++;
+        }
+    }
+
+    /**
+     * Removes the automatic entries built from the given graph, typically when it is replaced as the current graph:
+     * their roots may not be in the new graph.
+     */
+    public synchronized void removeDerived(Graph source) {
+        for (Iterator<Graph> it = graphs.values().iterator(); it.hasNext();) {
+            Graph graph = it.next();
+            if (sources.get(graph) == source) {
+                sources.remove(graph);
+                it.remove();
+                evictions++;
+            }
+        }
+    }
+
+    /**
+     * Registers a graph with an explicit ID, replacing the previous one.
+     */
+    public synchronized void register(String id, Graph graph) {
+        namedGraphs.put(id, graph);
+    }
+
+    /**
+     * @return the graph registered with that ID
+     * @throws BuildException if there is no such graph
+     */
+    public synchronized Graph get(String id) throws BuildException {
+        Graph graph = namedGraphs.get(id);
+        if (graph == null) {
+            throw new BuildException("No graph registered with the ID: " + id);
+        }
+        return graph;
+    }
+
+    public synchronized Graph remove(String id) {
+        return namedGraphs.remove(id);
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("Graph registry: %d hit(s), %d miss(es), %d graph(s), %d named graph(s), %d eviction(s)",
+                hits, misses, graphs.size(), namedGraphs.size(), evictions);
+    }
+
+}
@@ -0,0 +1,351 @@
+/*
+ * (C) Copyright 2017 Nuxeo SA (http://nuxeo.com/) and contributors.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser General Public License
+ * (LGPL) version 2.1 which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/lgpl-2.1.html
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ */
+package org.nuxeo.build.maven.graph;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.aether.graph.DependencyNode;
+
+/**
+ * Internal storage of the {@link Graph} nodes: each node ID is interned to an int index, the children and parents are
+ * kept as int adjacency arrays and the roots as a bit set plus their indexes in insertion order. The children are
+ * recorded when the node is added to the graph. The wrapped {@link DependencyNode}s are indexed by identity so that
+ * looking up a child does not require to rebuild its ID.
+ * <p>
+ * The prefix queries on the IDs are served by an array of the node indexes sorted by ID, sorted again on the first
+ * query following an addition.
+ *
+ * @since 2.1.8
+ */
+class GraphStore {
+
+    private static final int[] EMPTY = new int[0];
+
+    private final Map<String, Integer> indexes = new HashMap<>();
+
+    private final Map<DependencyNode, Integer> identities = new IdentityHashMap<>();
+
+    private Node[] nodes = new Node[64];
+
+    private int[][] children = new int[64][];
+
+    private int[][] parents = new int[64][];
+
+    private int[] parentCounts = new int[64];
+
+    private List<DependencyNode>[] parentViews = newViews(64);
+
+    private final BitSet roots = new BitSet();
+
+    private int[] rootIndexes = new int[8];
+
+    private int rootCount;
+
+    private final List<Node> rootsView = new AbstractList<Node>() {
+        @Override
+        public Node get(int i) {
+            if (i >= rootCount) {
+                throw new IndexOutOfBoundsException(String.valueOf(i));
+            }
+            return nodes[rootIndexes[i]];
+        }
+
+        @Override
+        public int size() {
+            return rootCount;
+        }
+    };
+
+    /**
+     * Indexes of the stored nodes sorted by ID, null if not sorted since the last addition.
+     */
+    private int[] sorted;
+
+    private int size;
+
+    /**
+     * @return the number of interned IDs
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return the index of that ID, allocated if needed
+     */
+    public int intern(String id) {
+        return internBoxed(id);
+    }
+
+    /**
+     * Same as {@link #intern(String)}; the identity map shares the returned instance instead of boxing the index again.
+     */
+    private Integer internBoxed(String id) {
+        Integer index = indexes.get(id);
+        if (index != null) {
+            return index;
+        }
+        if (size == nodes.length) {
+            int capacity = size * 2;
+            nodes = Arrays.copyOf(nodes, capacity);
+            children = Arrays.copyOf(children, capacity);
+            parents = Arrays.copyOf(parents, capacity);
+            parentCounts = Arrays.copyOf(parentCounts, capacity);
+            parentViews = Arrays.copyOf(parentViews, capacity);
+        }
+        index = size++;
+        children[index] = EMPTY;
+        parents[index] = EMPTY;
+        indexes.put(id, index);
+        return index;
+    }
+
+    /**
+     * Stores the node and sets its index. Does nothing if a node with the same ID is already stored.
+     *
+     * @return the index of the node with the same ID
+     */
+    public int add(Node node) {
+        Integer index = internBoxed(node.getId());
+        if (nodes[index] == null) {
+            nodes[index] = node;
+            sorted = null;
+            node.index = index;
+            identities.put(node, index);
+            identities.put(node.getDependencyNode(), index);
+        }
+        return index;
+    }
+
+    public boolean contains(String id) {
+        return indexOf(id) >= 0;
+    }
+
+    /**
+     * @return the index of the stored node with that ID, or -1
+     */
+    public int indexOf(String id) {
+        Integer index = indexes.get(id);
+        return index == null || nodes[index] == null ? -1 : index;
+    }
+
+    /**
+     * @return the index of that exact node instance (either a {@link Node} or the {@link DependencyNode} it wraps), or
+     *         -1
+     */
+    public int indexOf(DependencyNode node) {
+        Integer index = identities.get(node);
+        return index == null ? -1 : index;
+    }
+
+    /**
+     * Records another {@link DependencyNode} instance as an alias of an already stored node.
+     */
+    public void alias(DependencyNode node, int index) {
+        identities.put(node, indexes.get(nodes[index].getId()));
+    }
+
+    public Node get(int index) {
+        return nodes[index];
+    }
+
+    public void setChildren(int index, int[] childIndexes) {
+        children[index] = childIndexes;
+    }
+
+    public int[] getChildren(int index) {
+        return children[index];
+    }
+
+    public void addParent(int index, int parent) {
+        int count = parentCounts[index];
+        int[] array = parents[index];
+        if (count == array.length) {
+            array = Arrays.copyOf(array, Math.max(2, count * 2));
+            parents[index] = array;
+        }
+        array[count] = parent;
+        parentCounts[index] = count + 1;
+    }
+
+    public int getParentCount(int index) {
+        return parentCounts[index];
+    }
+
+    public int getParent(int index, int i) {
+        return parents[index][i];
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<DependencyNode>[] newViews(int capacity) {
+        return new List[capacity];
+    }
+
+    /**
+     * @return a read-only view on the parents of the node, created once per node
+     */
+    public List<DependencyNode> getParents(final int index) {
+        List<DependencyNode> view = parentViews[index];
+        if (view == null) {
+            view = newParentsView(index);
+            parentViews[index] = view;
+        }
+        return view;
+    }
+
+    private List<DependencyNode> newParentsView(final int index) {
+        return new AbstractList<DependencyNode>() {
+            @Override
+            public DependencyNode get(int i) {
+                if (i >= parentCounts[index]) {
+                    throw new IndexOutOfBoundsException(String.valueOf(i));
+                }
+                return nodes[parents[index][i]];
+            }
+
+            @Override
+            public int size() {
+                return parentCounts[index];
+            }
+        };
+    }
+
+    public void setRoot(String id) {
+        int index = intern(id);
+        if (roots.get(index)) {
+            return;
+        }
+        roots.set(index);
+        if (rootCount == rootIndexes.length) {
+            rootIndexes = Arrays.copyOf(rootIndexes, rootCount * 2);
+        }
+        rootIndexes[rootCount++] = index;
+    }
+
+    /**
+     * @return a read-only view on the root nodes, in the order they have been set
+     */
+    public List<Node> getRoots() {
+        return rootsView;
+    }
+
+    /**
+     * @return the stored nodes sorted by ID; the list is not changed by the next additions, until cleared
+     */
+    public List<Node> getSortedNodes() {
+        int[] current = getSorted();
+        return newNodesView(current, 0, current.length);
+    }
+
+    /**
+     * @return the stored nodes with an ID greater than or equal to {@code fromId} and lower than {@code toId}, sorted
+     *         by ID; the list is not changed by the next additions, until cleared
+     */
+    public List<Node> getSortedNodes(String fromId, String toId) {
+        int[] current = getSorted();
+        int from = lowerBound(current, fromId);
+        return newNodesView(current, from, Math.max(from, lowerBound(current, toId)));
+    }
+
+    private int[] getSorted() {
+        int[] current = sorted;
+        if (current == null) {
+            Integer[] stored = new Integer[size];
+            int count = 0;
+            for (int i = 0; i < size; i++) {
+                if (nodes[i] != null) {
+                    stored[count++] = i;
+                }
+            }
+            Arrays.sort(stored, 0, count, new Comparator<Integer>() {
+                @Override
+                public int compare(Integer index1, Integer index2) {
+                    return nodes[index1].getId().compareTo(nodes[index2].getId());
+                }
+            });
+            current = new int[count];
+            for (int i = 0; i < count; i++) {
+                current[i] = stored[i];
+            }
+            sorted = current;
+        }
+        return current;
+    }
+
+    /**
+     * @return the position of the first ID greater than or equal to that one
+     */
+    private int lowerBound(int[] sortedIndexes, String id) {
+        int low = 0;
+        int high = sortedIndexes.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (nodes[sortedIndexes[middle]].getId().compareTo(id) < 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private List<Node> newNodesView(final int[] sortedIndexes, final int from, final int to) {
+        return new AbstractList<Node>() {
+            @Override
+            public Node get(int i) {
+                if (i < 0 || i >= to - from) {
+                    throw new IndexOutOfBoundsException(String.valueOf(i));
+                }
+                return nodes[sortedIndexes[from + i]];
+            }
+
+            @Override
+            public int size() {
+                return to - from;
+            }
+        };
+    }
+
+    public boolean isRoot(String id) {
+        Integer index = indexes.get(id);
+        return index != null && roots.get(index);
+    }
+
+    public void clear() {
+        for (int i = 0; i < size; i++) {
+            if (nodes[i] != null) {
+                nodes[i].index = -1;
+            }
+        }
+        Arrays.fill(nodes, 0, size, null);
+        Arrays.fill(children, 0, size, null);
+        Arrays.fill(parents, 0, size, null);
+        Arrays.fill(parentCounts, 0, size, 0);
+        Arrays.fill(parentViews, 0, size, null);
+        indexes.clear();
+        identities.clear();
+        roots.clear();
+        rootCount = 0;
+        sorted = null;
+        size = 0;
+    }
+
+}
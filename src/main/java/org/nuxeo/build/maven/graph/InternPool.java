@@ -0,0 +1,115 @@
+/*
+ * (C) Copyright 2017 Nuxeo SA (http://nuxeo.com/) and contributors.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser General Public License
+ * (LGPL) version 2.1 which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/lgpl-2.1.html
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ */
+package org.nuxeo.build.maven.graph;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.aether.artifact.Artifact;
+import org.eclipse.aether.artifact.DefaultArtifact;
+import org.eclipse.aether.graph.Dependency;
+
+/**
+ * Canonical instances of the coordinates, artifacts and dependencies held by the graphs, so that the graphs built
+ * during a Mojo execution (project graph, expanded graphs, printed graphs, artifact sets...) share their equal
+ * objects instead of keeping their own copies.
+ * <p>
+ * Artifacts and dependencies are immutable, their canonical instance can be used in place of any equal one. The pool
+ * is thread safe. It holds its values until it is discarded, see {@link org.nuxeo.build.maven.AntBuildMojo#getInternPool()}.
+ *
+ * @since 2.1.8
+ */
+public class InternPool {
+
+    private final ConcurrentMap<String, String> strings = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<Artifact, Artifact> artifacts = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<Dependency, Dependency> dependencies = new ConcurrentHashMap<>();
+
+    private final AtomicLong hits = new AtomicLong();
+
+    /**
+     * @return the canonical instance of the given string, null if null
+     */
+    public String intern(String value) {
+        if (value == null) {
+            return null;
+        }
+        String canonical = strings.putIfAbsent(value, value);
+        if (canonical == null) {
+            return value;
+        }
+        if (canonical != value) {
+            hits.incrementAndGet();
+        }
+        return canonical;
+    }
+
+    /**
+     * @return the canonical instance of the given artifact, which coordinates are interned, null if null
+     */
+    public Artifact intern(Artifact artifact) {
+        if (artifact == null) {
+            return null;
+        }
+        Artifact canonical = artifacts.get(artifact);
+        if (canonical != null) {
+            if (canonical != artifact) {
+                hits.incrementAndGet();
+            }
+            return canonical;
+        }
+        canonical = new DefaultArtifact(intern(artifact.getGroupId()), intern(artifact.getArtifactId()),
+                intern(artifact.getClassifier()), intern(artifact.getExtension()), intern(artifact.getVersion()),
+                artifact.getProperties(), artifact.getFile());
+        Artifact previous = artifacts.putIfAbsent(canonical, canonical);
+        return previous != null ? previous : canonical;
+    }
+
+    /**
+     * @return the canonical instance of the given dependency, which artifact is interned, null if null
+     */
+    public Dependency intern(Dependency dependency) {
+        if (dependency == null) {
+            return null;
+        }
+        Dependency canonical = dependencies.get(dependency);
+        if (canonical != null) {
+            if (canonical != dependency) {
+                hits.incrementAndGet();
+            }
+            return canonical;
+        }
+        canonical = new Dependency(intern(dependency.getArtifact()), intern(dependency.getScope()),
+                dependency.getOptional(), dependency.getExclusions());
+        Dependency previous = dependencies.putIfAbsent(canonical, canonical);
+        return previous != null ? previous : canonical;
+    }
+
+    /**
+     * @return the number of duplicates replaced by a canonical instance
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Intern pool: %d string(s), %d artifact(s), %d dependency(ies), %d duplicate(s) shared",
+                strings.size(), artifacts.size(), dependencies.size(), hits.get());
+    }
+
+}
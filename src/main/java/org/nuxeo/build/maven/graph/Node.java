@@ -19,6 +19,7 @@ package org.nuxeo.build.maven.graph;
 import java.io.File;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 
@@ -48,10 +49,20 @@ public class Node implements DependencyNode {
     @Deprecated
     private List<char[]> acceptedCategories;
 
-    private List<DependencyNode> parents = new ArrayList<>();
+    /**
+     * Index in the {@link GraphStore} of the graph, -1 if the node has not been added to the graph.
+     */
+    int index = -1;
 
     protected DependencyNode dependencyNode;
 
+    /**
+     * Dependency from which {@link #mavenArtifact} has been converted.
+     */
+    private Dependency mavenArtifactDependency;
+
+    private Artifact mavenArtifact;
+
     /**
      * @deprecated since 2.0
      */
@@ -114,7 +125,7 @@ public class Node implements DependencyNode {
         id = node.id;
         graph = node.graph;
         acceptedCategories = node.acceptedCategories;
-        parents = node.parents;
+        index = node.index;
     }
 
     /**
@@ -123,18 +134,40 @@ public class Node implements DependencyNode {
     public Node(Graph graph, DependencyNode dependencyNode) {
         this.graph = graph;
         this.dependencyNode = dependencyNode;
-        id = genNodeId(dependencyNode);
+        id = graph != null ? graph.pool.intern(genNodeId(dependencyNode)) : genNodeId(dependencyNode);
     }
 
-    public Artifact getMavenArtifact() {
-        return DependencyUtils.toMavenArtifact(getDependency());
+    /**
+     * The conversion is kept until the node dependency changes, typically when the artifact file is resolved. The
+     * returned artifact is shared and must not be modified.
+     */
+    public synchronized Artifact getMavenArtifact() {
+        Dependency dependency = getDependency();
+        if (mavenArtifact == null || dependency != mavenArtifactDependency) {
+            mavenArtifact = DependencyUtils.toMavenArtifact(dependency);
+            mavenArtifactDependency = dependency;
+        }
+        return mavenArtifact;
     }
 
+    /**
+     * Resolves the artifact if its file is not known yet, waiting for its prefetch if any (see
+     * {@link Graph#prefetchFiles(Collection, org.nuxeo.build.maven.filter.Filter, int)}). The resolved artifact is
+     * kept on the node.
+     */
     public File getFile() {
         File file = getArtifact().getFile();
         if (file == null) {
             try {
-                file = DependencyUtils.resolve(getArtifact()).getFile();
+                org.eclipse.aether.artifact.Artifact artifact = null;
+                if (graph != null) {
+                    artifact = graph.getPrefetchedArtifact(this);
+                }
+                if (artifact == null) {
+                    artifact = DependencyUtils.resolve(getArtifact());
+                }
+                setArtifact(artifact);
+                file = artifact.getFile();
             } catch (ArtifactResolutionException e) {
                 AntClient.getInstance().log(e.getMessage(), e, Project.MSG_ERR);
                 return null;
@@ -156,6 +189,9 @@ public class Node implements DependencyNode {
             return id.equals(((Node) obj).id);
         }
         if (obj instanceof DependencyNode) {
+            if (index >= 0 && graph.store.indexOf((DependencyNode) obj) == index) {
+                return true;
+            }
             return dependencyNode.equals(obj) || id.equals(genNodeId((DependencyNode) obj));
         }
         return false;
@@ -261,21 +297,31 @@ public class Node implements DependencyNode {
         dependencyNode.setData(key, value);
     }
 
+    /**
+     * Traverses the graph without recursion.
+     *
+     * @see DependencyWalker
+     */
     @Override
     public boolean accept(DependencyVisitor visitor) {
-        return dependencyNode.accept(visitor);
+        return DependencyWalker.walk(dependencyNode, visitor);
     }
 
     @Deprecated
     public List<DependencyNode> getParents() {
-        return parents;
+        if (index < 0) {
+            return Collections.emptyList();
+        }
+        return graph.store.getParents(index);
     }
 
     /**
      * @since 2.0
      */
     public void addParent(Node node) {
-        parents.add(node);
+        if (index >= 0 && node.index >= 0) {
+            graph.store.addParent(index, node.index);
+        }
     }
 
     @Override
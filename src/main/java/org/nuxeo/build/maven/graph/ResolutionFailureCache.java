@@ -0,0 +1,204 @@
+/*
+ * (C) Copyright 2017 Nuxeo SA (http://nuxeo.com/) and contributors.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser General Public License
+ * (LGPL) version 2.1 which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/lgpl-2.1.html
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ */
+package org.nuxeo.build.maven.graph;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.aether.RepositorySystemSession;
+import org.eclipse.aether.SessionData;
+import org.eclipse.aether.artifact.Artifact;
+import org.eclipse.aether.repository.RemoteRepository;
+import org.eclipse.aether.resolution.ArtifactRequest;
+import org.eclipse.aether.resolution.ArtifactResolutionException;
+import org.eclipse.aether.resolution.ArtifactResult;
+import org.eclipse.aether.transfer.ArtifactNotFoundException;
+
+/**
+ * Artifacts which could not be resolved, shared by all the Mojo executions of a Maven session so that the next
+ * resolutions of the same artifact from the same repositories fail at once instead of querying the remote repositories
+ * again. It is stored in the repository system session data.
+ * <p>
+ * Only the artifacts missing from all the repositories are remembered, not the transfer or checksum errors which may
+ * be transient. A failure is remembered for a limited time (see {@link #setTtl(long)}), after which the artifact is
+ * looked up again.
+ *
+ * @see DependencyUtils#resolve(Artifact, List)
+ * @see DependencyUtils#resolveAll(java.util.Collection, int)
+ * @since 2.1.8
+ */
+public class ResolutionFailureCache {
+
+    private static final String SESSION_KEY = ResolutionFailureCache.class.getName();
+
+    private static final class Failure {
+
+        final long expiration;
+
+        final List<Exception> exceptions;
+
+        Failure(long expiration, List<Exception> exceptions) {
+            this.expiration = expiration;
+            this.exceptions = exceptions;
+        }
+    }
+
+    private final ConcurrentMap<String, Failure> failures = new ConcurrentHashMap<>();
+
+    private final AtomicInteger avoided = new AtomicInteger();
+
+    private volatile long ttl;
+
+    private boolean configured;
+
+    protected ResolutionFailureCache() {
+    }
+
+    /**
+     * @return the cache shared in that session
+     */
+    public static ResolutionFailureCache get(RepositorySystemSession session) {
+        SessionData data = session.getData();
+        Object cache = data.get(SESSION_KEY);
+        if (cache == null) {
+            data.set(SESSION_KEY, null, new ResolutionFailureCache());
+            cache = data.get(SESSION_KEY);
+        }
+        return (ResolutionFailureCache) cache;
+    }
+
+    /**
+     * The time to live is a session setting: the first value set wins and the later ones are ignored, so that a Mojo
+     * execution cannot disable or clear the cache used by the others.
+     *
+     * @param ttl time in milliseconds during which a failure is remembered, 0 or less to disable the cache
+     * @return true if the value was set, false if the time to live was already set in that session
+     */
+    public synchronized boolean setTtl(long ttl) {
+        if (configured) {
+            return false;
+        }
+        configured = true;
+        this.ttl = ttl;
+        return true;
+    }
+
+    public boolean isEnabled() {
+        return ttl > 0;
+    }
+
+    public static String getKey(Artifact artifact, List<RemoteRepository> repositories) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(artifact.getGroupId()).append(':').append(artifact.getArtifactId()).append(':');
+        sb.append(artifact.getExtension()).append(':').append(artifact.getClassifier()).append(':');
+        sb.append(artifact.getVersion());
+        for (RemoteRepository repository : repositories) {
+            sb.append(' ').append(repository.getId()).append('=').append(repository.getUrl());
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Counts a hit as an avoided remote lookup.
+     *
+     * @return the exceptions of the last unexpired failure to resolve the artifact from the repositories, null if
+     *         there is none
+     */
+    public List<Exception> getFailure(Artifact artifact, List<RemoteRepository> repositories) {
+        if (!isEnabled()) {
+            return null;
+        }
+        String key = getKey(artifact, repositories);
+        Failure failure = failures.get(key);
+        if (failure == null) {
+            return null;
+        }
+        if (failure.expiration < now()) {
+            failures.remove(key, failure);
+            return null;
+        }
+        avoided.incrementAndGet();
+        return failure.exceptions;
+    }
+
+    /**
+     * Remembers the failure of an artifact resolution if the artifact was not found. Resolved results and the other
+     * failures are ignored.
+     */
+    public void addFailure(ArtifactResult result) {
+        if (!isEnabled() || result.isResolved() || !isNotFound(result.getExceptions())) {
+            return;
+        }
+        Artifact artifact = result.getRequest().getArtifact();
+        List<RemoteRepository> repositories = result.getRequest().getRepositories();
+        failures.put(getKey(artifact, repositories), new Failure(now() + ttl,
+                Collections.unmodifiableList(result.getExceptions())));
+    }
+
+    /**
+     * @return true if all the exceptions report a missing artifact
+     */
+    protected static boolean isNotFound(List<Exception> exceptions) {
+        if (exceptions.isEmpty()) {
+            return false;
+        }
+        for (Exception exception : exceptions) {
+            if (!(exception instanceof ArtifactNotFoundException)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return a result, without artifact, for a resolution failed from the cache; see
+     *         {@link #getFailure(Artifact, List)}
+     */
+    public static ArtifactResult toResult(ArtifactRequest request, List<Exception> exceptions) {
+        ArtifactResult result = new ArtifactResult(request);
+        for (Exception exception : exceptions) {
+            result.addException(exception);
+        }
+        return result;
+    }
+
+    /**
+     * @return an exception, as thrown by the failed resolution, for a resolution failed from the cache; see
+     *         {@link #getFailure(Artifact, List)}
+     */
+    public static ArtifactResolutionException toException(ArtifactRequest request, List<Exception> exceptions) {
+        return new ArtifactResolutionException(Collections.singletonList(toResult(request, exceptions)));
+    }
+
+    /**
+     * @return the number of resolutions which failed from the cache, without querying the remote repositories
+     */
+    public int getAvoided() {
+        return avoided.get();
+    }
+
+    protected long now() {
+        return System.currentTimeMillis();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Resolution failure cache: %d failure(s), %d avoided remote lookup(s)", failures.size(),
+                avoided.get());
+    }
+
+}
@@ -0,0 +1,181 @@
+/*
+ * (C) Copyright 2017 Nuxeo SA (http://nuxeo.com/) and contributors.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser General Public License
+ * (LGPL) version 2.1 which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/lgpl-2.1.html
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ */
+package org.nuxeo.build.maven.graph;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+import org.apache.tools.ant.Project;
+import org.eclipse.aether.graph.DependencyNode;
+import org.eclipse.aether.resolution.DependencyResult;
+
+import org.nuxeo.build.ant.AntClient;
+import org.nuxeo.build.maven.filter.CompositeFilter;
+import org.nuxeo.build.maven.filter.Filter;
+import org.nuxeo.build.maven.filter.NotFilter;
+
+/**
+ * Dependency results of the Ant artifact sets and dependencies, so that the sets declared on the same root with an
+ * equal filter (the filters are compared by structure) and depth are resolved only once.
+ * <p>
+ * Results are keyed by root node ID, filter and depth. A result is only reused for the same tree: if the root node
+ * with that ID has been collected again, it is resolved again. The keys hold a copy of the filter structure, so that
+ * a composite filter changed afterwards does not alter them. At most {@code maxSize} results are kept, the least
+ * recently used ones are dropped first.
+ *
+ * @since 2.1.8
+ */
+public class ResolutionMemo {
+
+    private final int maxSize;
+
+    private final LinkedHashMap<Key, Entry> results = new LinkedHashMap<Key, Entry>(16, 0.75f, true) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+            if (size() > maxSize) {
+                evictions++;
+                return true;
+            }
+            return false;
+        }
+    };
+
+    private int hits;
+
+    private int misses;
+
+    private int evictions;
+
+    /**
+     * @param maxSize maximum number of results kept, 0 or less to keep none
+     */
+    public ResolutionMemo(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    private static final class Key {
+
+        final String rootId;
+
+        final Object filter;
+
+        final int depth;
+
+        Key(String rootId, Filter filter, int depth) {
+            this.rootId = rootId;
+            this.filter = copy(filter);
+            this.depth = depth;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) obj;
+            return depth == other.depth && rootId.equals(other.rootId) && Objects.equals(filter, other.filter);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(rootId, filter, depth);
+        }
+    }
+
+    /**
+     * @return an immutable copy of the filter structure, equal for the filters equal when copied; the composite filters
+     *         are compared whatever the order of their filters, as by {@link CompositeFilter#equals(Object)}
+     */
+    static Object copy(Filter filter) {
+        if (filter instanceof CompositeFilter) {
+            Set<Object> filters = new HashSet<>();
+            for (Filter child : ((CompositeFilter) filter).getFilters()) {
+                filters.add(copy(child));
+            }
+            return Arrays.asList(filter.getClass(), Collections.unmodifiableSet(filters));
+        } else if (filter instanceof NotFilter) {
+            return Arrays.asList(NotFilter.class, copy(((NotFilter) filter).getFilter()));
+        }
+        return filter;
+    }
+
+    private static final class Entry {
+
+        final DependencyNode root;
+
+        final DependencyResult result;
+
+        Entry(DependencyNode root, DependencyResult result) {
+            this.root = root;
+            this.result = result;
+        }
+    }
+
+    /**
+     * @return the result of {@link DependencyUtils#resolveDependencies(DependencyNode, Filter, int)}, shared with the
+     *         previous calls on the same tree with an equal filter and depth
+     */
+    public DependencyResult resolve(Node node, Filter filter, int depth) {
+        Key key = new Key(node.getId(), filter, depth);
+        DependencyNode root = Graph.unwrap(node);
+        Entry entry = get(key);
+        if (entry != null && entry.root == root) {
+            AntClient.getInstance().log("Reusing dependency result of " + node, Project.MSG_DEBUG);
+            return entry.result;
+        }
+        DependencyResult result = DependencyUtils.resolveDependencies(node, filter, depth);
+        put(key, new Entry(root, result));
+        return result;
+    }
+
+    private synchronized Entry get(Key key) {
+        Entry entry = results.get(key);
+        if (entry != null) {
+            hits++;
+        } else {
+            misses++;
+        }
+        return entry;
+    }
+
+    private synchronized void put(Key key, Entry entry) {
+        if (maxSize > 0) {
+            results.put(key, entry);
+        }
+    }
+
+    /**
+     * @return the number of results kept
+     */
+    public synchronized int size() {
+        return results.size();
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("Resolution memo: %d hit(s), %d miss(es), %d result(s), %d eviction(s)", hits, misses,
+                results.size(), evictions);
+    }
+
+}
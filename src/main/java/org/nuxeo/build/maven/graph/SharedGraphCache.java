@@ -0,0 +1,152 @@
+/*
+ * (C) Copyright 2017 Nuxeo SA (http://nuxeo.com/) and contributors.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser General Public License
+ * (LGPL) version 2.1 which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/lgpl-2.1.html
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ */
+package org.nuxeo.build.maven.graph;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.tools.ant.Project;
+import org.eclipse.aether.RepositorySystemSession;
+import org.eclipse.aether.SessionData;
+import org.eclipse.aether.collection.CollectRequest;
+import org.eclipse.aether.graph.DependencyNode;
+
+import org.nuxeo.build.ant.AntClient;
+
+/**
+ * In-memory cache of collected dependency graphs shared by all the Mojo executions of a Maven session: goals of the
+ * same module and modules of the reactor, including parallel builds. It is stored in the repository system session
+ * data.
+ * <p>
+ * The entries are keyed on the whole collect request (see {@link GraphCache#fingerprint(CollectRequest, String)}). The
+ * graph of a project, rooted on the module with its dependency management, is then only shared by the goals of that
+ * module. The graphs collected for a single dependency (expanded keys, artifact:file and artifact:print sources...)
+ * are keyed on that dependency and the repositories only, so the modules of the reactor share them. The project
+ * graphs are not split into shared subtrees: a subtree depends on the dependency management and on the conflicts
+ * resolved with the rest of the project graph.
+ * <p>
+ * The graphs are kept encoded with the {@link GraphCache} format: each hit decodes a new copy, so that the graph
+ * changes made by an execution (resolved files, removed children...) are not seen by the others. The memory is bounded
+ * by the total size of the encoded graphs; the least recently used graphs are evicted first.
+ *
+ * @since 2.1.8
+ */
+public class SharedGraphCache {
+
+    private static final String SESSION_KEY = SharedGraphCache.class.getName();
+
+    private final long maxSize;
+
+    private long size;
+
+    private int hits;
+
+    private int dependencyHits;
+
+    private int misses;
+
+    private int evictions;
+
+    private final LinkedHashMap<String, byte[]> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    protected SharedGraphCache(long maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * @param maxSize maximum size in bytes, used if the cache does not exist yet in the session
+     * @return the cache shared in that session
+     */
+    public static SharedGraphCache get(RepositorySystemSession session, long maxSize) {
+        SessionData data = session.getData();
+        Object cache = data.get(SESSION_KEY);
+        if (cache == null) {
+            data.set(SESSION_KEY, null, new SharedGraphCache(maxSize));
+            cache = data.get(SESSION_KEY);
+        }
+        return (SharedGraphCache) cache;
+    }
+
+    /**
+     * @return a copy of the cached graph, or null
+     */
+    public DependencyNode load(CollectRequest request, String fingerprint) {
+        return load(request, fingerprint, new InternPool());
+    }
+
+    /**
+     * @param pool pool providing the artifacts and dependencies of the returned graph
+     * @return a copy of the cached graph, or null
+     */
+    public DependencyNode load(CollectRequest request, String fingerprint, InternPool pool) {
+        byte[] bytes;
+        synchronized (this) {
+            bytes = entries.get(fingerprint);
+            if (bytes == null) {
+                misses++;
+                return null;
+            }
+            hits++;
+            if (request.getRootArtifact() == null) {
+                dependencyHits++;
+            }
+        }
+        try {
+            DependencyNode root = GraphCache.decode(bytes, fingerprint, request, pool);
+            AntClient.getInstance().log("Shared graph cache hit for " + request.getRoot(), Project.MSG_VERBOSE);
+            return root;
+        } catch (IOException e) {
+            AntClient.getInstance().log("Ignoring unreadable shared graph: " + e, Project.MSG_WARN);
+            return null;
+        }
+    }
+
+    public void store(CollectRequest request, String fingerprint, DependencyNode root) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try {
+            GraphCache.encode(out, fingerprint, root);
+        } catch (IOException e) {
+            AntClient.getInstance().log("Cannot encode graph of " + request.getRoot() + ": " + e, Project.MSG_WARN);
+            return;
+        }
+        byte[] bytes = out.toByteArray();
+        if (bytes.length > maxSize) {
+            return;
+        }
+        synchronized (this) {
+            byte[] previous = entries.put(fingerprint, bytes);
+            if (previous != null) {
+                size -= previous.length;
+            }
+            size += bytes.length;
+            for (Iterator<Map.Entry<String, byte[]>> it = entries.entrySet().iterator(); size > maxSize
+                    && it.hasNext();) {
+                size -= it.next().getValue().length;
+                it.remove();
+                evictions++;
+            }
+        }
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("Shared graph cache, Maven session so far: %d hit(s) including %d on dependency graphs, "
+                + "%d miss(es), %d graph(s) in %d KB, %d eviction(s)", hits, dependencyHits, misses, entries.size(),
+                size / 1024, evictions);
+    }
+
+}
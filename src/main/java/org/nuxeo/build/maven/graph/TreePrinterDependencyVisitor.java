@@ -211,7 +211,7 @@ public class TreePrinterDependencyVisitor extends AbstractDependencyVisitor {
         StringBuilder sb = new StringBuilder();
         switch (format) {
         case 1:
-            sb.append(artifact.getFile().getName());
+            sb.append(DependencyUtils.getFile(node).getName());
             sb.append('=');
             // fall through
         case 0:
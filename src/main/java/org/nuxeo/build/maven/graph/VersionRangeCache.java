@@ -0,0 +1,200 @@
+/*
+ * (C) Copyright 2017 Nuxeo SA (http://nuxeo.com/) and contributors.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser General Public License
+ * (LGPL) version 2.1 which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/lgpl-2.1.html
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ */
+package org.nuxeo.build.maven.graph;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.tools.ant.BuildException;
+import org.apache.tools.ant.Project;
+import org.eclipse.aether.RepositorySystemSession;
+import org.eclipse.aether.SessionData;
+import org.eclipse.aether.artifact.Artifact;
+import org.eclipse.aether.repository.RemoteRepository;
+import org.eclipse.aether.resolution.VersionRangeRequest;
+import org.eclipse.aether.resolution.VersionRangeResolutionException;
+import org.eclipse.aether.resolution.VersionRangeResult;
+
+import org.nuxeo.build.ant.AntClient;
+import org.nuxeo.build.maven.AntBuildMojo;
+
+/**
+ * Newest versions of the artifacts, as found by {@link DependencyUtils#setNewestVersion(Artifact)}, shared by all the
+ * Mojo executions of a Maven session. It is stored in the repository system session data.
+ * <p>
+ * Entries are keyed by group ID, artifact ID and repositories. Concurrent lookups of the same entry wait for a single
+ * version range request. Failed lookups are not cached. Optionally, the versions are also stored on disk and reused by
+ * the next builds until they expire: the disk storage is given by each lookup, so that each Mojo execution uses its
+ * own configuration while sharing the memory entries.
+ *
+ * @since 2.1.8
+ */
+public class VersionRangeCache {
+
+    private static final String SESSION_KEY = VersionRangeCache.class.getName();
+
+    private final ConcurrentMap<String, FutureTask<String>> versions = new ConcurrentHashMap<>();
+
+    private final AtomicInteger hits = new AtomicInteger();
+
+    private final AtomicInteger diskHits = new AtomicInteger();
+
+    private final AtomicInteger misses = new AtomicInteger();
+
+    protected VersionRangeCache() {
+    }
+
+    /**
+     * @return the cache shared in that session
+     */
+    public static VersionRangeCache get(RepositorySystemSession session) {
+        SessionData data = session.getData();
+        Object cache = data.get(SESSION_KEY);
+        if (cache == null) {
+            data.set(SESSION_KEY, null, new VersionRangeCache());
+            cache = data.get(SESSION_KEY);
+        }
+        return (VersionRangeCache) cache;
+    }
+
+    public static String getKey(Artifact artifact, List<RemoteRepository> repositories) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(artifact.getGroupId()).append(':').append(artifact.getArtifactId());
+        for (RemoteRepository repository : repositories) {
+            sb.append(' ').append(repository.getId()).append('=').append(repository.getUrl());
+        }
+        return sb.toString();
+    }
+
+    /**
+     * @return the newest version of the artifact in the repositories, null if there is none
+     */
+    public String getNewestVersion(Artifact artifact, List<RemoteRepository> repositories)
+            throws VersionRangeResolutionException {
+        return getNewestVersion(artifact, repositories, null, 0);
+    }
+
+    /**
+     * Same as {@link #getNewestVersion(Artifact, List)}, looking for the versions missing from memory in the disk
+     * storage, then storing the requested ones there.
+     *
+     * @param directory where the versions are stored, null to disable the disk storage
+     * @param ttl time in milliseconds during which a stored version is reused
+     */
+    public String getNewestVersion(final Artifact artifact, final List<RemoteRepository> repositories,
+            final File directory, final long ttl) throws VersionRangeResolutionException {
+        final String key = getKey(artifact, repositories);
+        FutureTask<String> task = versions.get(key);
+        if (task == null) {
+            FutureTask<String> newTask = new FutureTask<>(new Callable<String>() {
+                @Override
+                public String call() throws VersionRangeResolutionException {
+                    File file = directory != null ? new File(directory, GraphCache.sha1(key)) : null;
+                    String version = load(file, ttl);
+                    if (version == null) {
+                        misses.incrementAndGet();
+                        version = request(artifact, repositories);
+                        if (version != null) {
+                            store(file, version);
+                        }
+                    }
+                    return version;
+                }
+            });
+            task = versions.putIfAbsent(key, newTask);
+            if (task == null) {
+                task = newTask;
+                task.run();
+            } else {
+                hits.incrementAndGet();
+            }
+        } else {
+            hits.incrementAndGet();
+        }
+        try {
+            return task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BuildException("Interrupted while looking for the versions of " + artifact, e);
+        } catch (ExecutionException e) {
+            versions.remove(key, task);
+            if (e.getCause() instanceof VersionRangeResolutionException) {
+                throw (VersionRangeResolutionException) e.getCause();
+            } else if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new BuildException(e.getCause());
+        }
+    }
+
+    protected String request(Artifact artifact, List<RemoteRepository> repositories)
+            throws VersionRangeResolutionException {
+        AntBuildMojo mojo = AntBuildMojo.getInstance();
+        VersionRangeRequest rangeRequest = new VersionRangeRequest(artifact.setVersion("[0,)"), repositories, null);
+        VersionRangeResult rangeResult = mojo.getSystem().resolveVersionRange(mojo.getSession(), rangeRequest);
+        AntClient.getInstance().log(
+                String.format("Versions found for %s: %s", rangeRequest.getArtifact(), rangeResult.getVersions()),
+                Project.MSG_DEBUG);
+        return rangeResult.getHighestVersion() != null ? rangeResult.getHighestVersion().toString() : null;
+    }
+
+    private String load(File file, long ttl) {
+        if (file == null || !file.isFile() || file.lastModified() + ttl < System.currentTimeMillis()) {
+            return null;
+        }
+        try {
+            String version = new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8).trim();
+            if (version.isEmpty()) {
+                return null;
+            }
+            diskHits.incrementAndGet();
+            return version;
+        } catch (IOException e) {
+            AntClient.getInstance().log("Ignoring unreadable version cache entry " + file + ": " + e,
+                    Project.MSG_WARN);
+            return null;
+        }
+    }
+
+    private void store(File file, String version) {
+        if (file == null) {
+            return;
+        }
+        try {
+            Files.createDirectories(file.getParentFile().toPath());
+            File tmp = File.createTempFile(file.getName(), ".tmp", file.getParentFile());
+            Files.write(tmp.toPath(), version.getBytes(StandardCharsets.UTF_8));
+            Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            AntClient.getInstance().log("Cannot write version cache entry " + file + ": " + e, Project.MSG_WARN);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Version range cache: %d hit(s), %d disk hit(s), %d miss(es)", hits.get(),
+                diskHits.get(), misses.get());
+    }
+
+}
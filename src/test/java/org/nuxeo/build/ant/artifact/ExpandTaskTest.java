@@ -0,0 +1,115 @@
+/*
+ * (C) Copyright 2017 Nuxeo SA (http://nuxeo.com/) and contributors.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser General Public License
+ * (LGPL) version 2.1 which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/lgpl-2.1.html
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ */
+
+package org.nuxeo.build.ant.artifact;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.util.Collection;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+
+import org.eclipse.aether.graph.DependencyNode;
+import org.junit.Test;
+
+import org.nuxeo.build.maven.AntBuildMojo;
+import org.nuxeo.build.maven.filter.ArtifactIdFilter;
+import org.nuxeo.build.maven.filter.Filter;
+import org.nuxeo.build.maven.filter.NotFilter;
+import org.nuxeo.build.maven.graph.Graph;
+import org.nuxeo.build.maven.graph.GraphTestSupport;
+import org.nuxeo.build.maven.graph.Node;
+
+public class ExpandTaskTest extends GraphTestSupport {
+
+    /**
+     * Project graph: org.nuxeo.x:a -&gt; a1 -&gt; a2 and org.nuxeo.x:b -&gt; b1.
+     */
+    private static class ProjectMojo extends AntBuildMojo {
+
+        ProjectMojo() {
+            graphRegistrySize = 16;
+        }
+
+        @Override
+        public Graph newGraph(int depth, Filter collectFilter) {
+            setGraph(new Graph());
+            graph.addRootNode(newNode("org.nuxeo:project:1.0",
+                    newNode("org.nuxeo.x:a:1.0", newNode("a1", newNode("a2"))),
+                    newNode("org.nuxeo.x:b:1.0", newNode("b1"))));
+            return graph;
+        }
+    }
+
+    private static Graph expand(AntBuildMojo mojo, final String depth, final Filter filter) throws Exception {
+        ExecutorService executor = mojo.newExecutor(1, "test");
+        try {
+            return executor.submit(new Callable<Graph>() {
+                @Override
+                public Graph call() {
+                    ExpandTask task = new ExpandTask() {
+                        @Override
+                        public void addRootNodes(Graph graph, Collection<? extends DependencyNode> nodes) {
+                            // No repository: the found subtrees are added as is instead of collected again
+                            for (DependencyNode node : nodes) {
+                                graph.addRootNode(((Node) node).getDependencyNode());
+                            }
+                        }
+                    };
+                    task.setKey("org.nuxeo.x");
+                    task.setDepth(depth);
+                    task.setCollectonly(true);
+                    task.setGraphid("expanded");
+                    if (filter != null) {
+                        task.filter.addFilter(filter);
+                    }
+                    task.execute();
+                    return AntBuildMojo.getInstance().getGraphRegistry().get("expanded");
+                }
+            }).get();
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testSameKeyResolvedIncrementally() throws Exception {
+        AntBuildMojo mojo = new ProjectMojo();
+        Graph graph = expand(mojo, "1", null);
+        assertEquals(2, graph.getRoots().size());
+        assertEquals(4, graph.getResolvedNodeCount());
+        assertEquals(0, graph.getReusedNodeCount());
+        // Deeper: same graph, resolved again down to the new depth
+        assertSame(graph, expand(mojo, "2", null));
+        assertEquals(9, graph.getResolvedNodeCount());
+        // Shallower: covered
+        assertSame(graph, expand(mojo, "1", null));
+        assertEquals(9, graph.getResolvedNodeCount());
+        assertEquals(4, graph.getReusedNodeCount());
+        // Another filter: same graph, without the refused root
+        assertSame(graph, expand(mojo, "2", new NotFilter(new ArtifactIdFilter("b"))));
+        assertEquals(1, graph.getRoots().size());
+        assertEquals(3, graph.getNodes().size());
+        assertEquals(12, graph.getResolvedNodeCount());
+        // Back to the first filter: the refused root is back, and nothing is resolved again
+        assertSame(graph, expand(mojo, "2", null));
+        assertEquals(2, graph.getRoots().size());
+        assertEquals(5, graph.getNodes().size());
+        assertEquals(12, graph.getResolvedNodeCount());
+        assertEquals(9, graph.getReusedNodeCount());
+    }
+
+}
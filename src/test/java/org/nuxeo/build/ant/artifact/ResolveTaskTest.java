@@ -0,0 +1,45 @@
+/*
+ * (C) Copyright 2017 Nuxeo SA (http://nuxeo.com/) and contributors.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser General Public License
+ * (LGPL) version 2.1 which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/lgpl-2.1.html
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ */
+
+package org.nuxeo.build.ant.artifact;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+public class ResolveTaskTest {
+
+    @Test
+    public void testValuesInFileOrder() throws IOException {
+        StringBuilder sb = new StringBuilder("# comment\n");
+        for (int i = 20; i > 0; i--) {
+            sb.append("key").append(i).append("=org.nuxeo:a").append(i).append('\n');
+        }
+        // Redefined: keeps its first position
+        sb.append("key20 = org.nuxeo:b\n");
+        ArrayList<String> values = new ArrayList<>(ResolveTask.loadValues(new ByteArrayInputStream(
+                sb.toString().getBytes(StandardCharsets.ISO_8859_1))));
+        assertEquals(20, values.size());
+        assertEquals(Arrays.asList("org.nuxeo:b", "org.nuxeo:a19", "org.nuxeo:a18"), values.subList(0, 3));
+        assertEquals("org.nuxeo:a1", values.get(19));
+    }
+
+}
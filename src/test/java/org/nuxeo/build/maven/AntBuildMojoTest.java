@@ -0,0 +1,70 @@
+/*
+ * (C) Copyright 2017 Nuxeo SA (http://nuxeo.com/) and contributors.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser General Public License
+ * (LGPL) version 2.1 which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/lgpl-2.1.html
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ */
+
+package org.nuxeo.build.maven;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+
+import org.nuxeo.build.maven.filter.Filter;
+import org.nuxeo.build.maven.graph.Graph;
+
+public class AntBuildMojoTest {
+
+    /**
+     * Builds empty project graphs, counting them.
+     */
+    private static class GraphMojo extends AntBuildMojo {
+
+        int built;
+
+        @Override
+        public Graph newGraph(int depth, Filter collectFilter) {
+            setGraph(new Graph());
+            graph.setCollectDepth(depth);
+            built++;
+            return graph;
+        }
+    }
+
+    @Test
+    public void testLazyGraphCollectedDeeper() {
+        GraphMojo mojo = new GraphMojo();
+        Graph graph = mojo.getGraph(1);
+        assertSame(graph, mojo.getGraph(1));
+        assertSame(graph, mojo.getGraph(0));
+        assertEquals(1, mojo.built);
+        Graph deeper = mojo.getGraph();
+        assertNotSame(graph, deeper);
+        assertEquals(Integer.MAX_VALUE, deeper.getCollectDepth());
+        assertSame(deeper, mojo.getGraph(2));
+        assertEquals(2, mojo.built);
+    }
+
+    @Test
+    public void testExplicitGraphKept() {
+        GraphMojo mojo = new GraphMojo();
+        Graph lazy = mojo.getGraph(1);
+        // Built explicitly, as by an expand task: not collected again
+        Graph graph = mojo.newGraph(1, null);
+        assertNotSame(lazy, graph);
+        assertSame(graph, mojo.getGraph());
+        assertEquals(2, mojo.built);
+    }
+
+}
@@ -0,0 +1,42 @@
+/*
+ * (C) Copyright 2017 Nuxeo SA (http://nuxeo.com/) and contributors.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser General Public License
+ * (LGPL) version 2.1 which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/lgpl-2.1.html
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ */
+
+package org.nuxeo.build.maven.filter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import org.junit.Test;
+
+public class CompositeFilterTest {
+
+    @Test
+    public void testStructuralEquality() {
+        AndFilter filter = new AndFilter();
+        filter.addFiltersFromPattern("org.nuxeo*:nuxeo-*:*:jar");
+        filter.addFilter(new NotFilter(new IsOptionalFilter(true)));
+        AndFilter reordered = new AndFilter();
+        reordered.addFilter(new NotFilter(new IsOptionalFilter(true)));
+        reordered.addFiltersFromPattern("org.nuxeo*:nuxeo-*:*:jar");
+        reordered.addFilter(new GroupIdFilter("org.nuxeo*"));
+        assertEquals(filter, reordered);
+        assertEquals(filter.hashCode(), reordered.hashCode());
+        assertFalse(filter.equals(new OrFilter(filter.getFilters())));
+        assertFalse(new GroupIdFilter("org.nuxeo").equals(new ArtifactIdFilter("org.nuxeo")));
+        assertFalse(new GroupIdFilter("org.nuxeo*").equals(new GroupIdFilter("*org.nuxeo")));
+        assertEquals(new GroupIdFilter("org.*.nuxeo"), new GroupIdFilter("org.*.nuxeo"));
+    }
+
+}
@@ -0,0 +1,169 @@
+/*
+ * (C) Copyright 2017 Nuxeo SA (http://nuxeo.com/) and contributors.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser General Public License
+ * (LGPL) version 2.1 which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/lgpl-2.1.html
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ */
+
+package org.nuxeo.build.maven.filter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+
+import org.eclipse.aether.RepositorySystemSession;
+import org.eclipse.aether.artifact.Artifact;
+import org.eclipse.aether.collection.DependencyCollectionContext;
+import org.eclipse.aether.collection.DependencySelector;
+import org.eclipse.aether.graph.DefaultDependencyNode;
+import org.eclipse.aether.graph.Dependency;
+import org.eclipse.aether.graph.DependencyNode;
+import org.eclipse.aether.util.graph.visitor.FilteringDependencyVisitor;
+import org.eclipse.aether.util.graph.visitor.PreorderNodeListGenerator;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.nuxeo.build.maven.AntBuildMojo;
+import org.nuxeo.build.maven.graph.GraphTestSupport;
+
+public class FilterDependencySelectorTest extends GraphTestSupport {
+
+    private static DependencyCollectionContext newContext(final Dependency dependency) {
+        return new DependencyCollectionContext() {
+            @Override
+            public RepositorySystemSession getSession() {
+                return null;
+            }
+
+            @Override
+            public Artifact getArtifact() {
+                return dependency.getArtifact();
+            }
+
+            @Override
+            public Dependency getDependency() {
+                return dependency;
+            }
+
+            @Override
+            public List<Dependency> getManagedDependencies() {
+                return null;
+            }
+        };
+    }
+
+    /**
+     * Copies the tree as the collection would build it with the given selector.
+     */
+    private static DependencyNode collect(DependencyNode node, DependencySelector selector) {
+        DependencySelector childSelector = selector.deriveChildSelector(newContext(node.getDependency()));
+        List<DependencyNode> children = new ArrayList<>();
+        for (DependencyNode child : node.getChildren()) {
+            if (childSelector.selectDependency(child.getDependency())) {
+                children.add(collect(child, childSelector));
+            }
+        }
+        DefaultDependencyNode copy = new DefaultDependencyNode(node.getDependency());
+        copy.setChildren(children);
+        return copy;
+    }
+
+    /**
+     * @return the nodes the resolution accepts, as listed by the Aether dependency visitors
+     */
+    private static List<DependencyNode> accepted(DependencyNode root, Filter filter) {
+        PreorderNodeListGenerator generator = new PreorderNodeListGenerator();
+        root.accept(new FilteringDependencyVisitor(generator, filter));
+        return generator.getNodes();
+    }
+
+    private static int count(DependencyNode node) {
+        int count = 1;
+        for (DependencyNode child : node.getChildren()) {
+            count += count(child);
+        }
+        return count;
+    }
+
+    private ExecutorService executor;
+
+    @Before
+    public void setUp() {
+        // Filters log through the Mojo
+        executor = new AntBuildMojo().newExecutor(1, "test");
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdown();
+    }
+
+    @Test
+    public void testExcludedAncestors() {
+        AncestorFilter ancestor = new AncestorFilter("org.foo:bar:*:*:*:*");
+        DependencySelector selector = FilterDependencySelector.compile(new NotFilter(
+                new OrFilter(Arrays.<Filter> asList(new AndFilter(Arrays.<Filter> asList(ancestor)),
+                        new GroupIdFilter("org.baz")))));
+        assertTrue(selector instanceof FilterDependencySelector);
+        assertEquals(Arrays.asList(ancestor), ((FilterDependencySelector) selector).getExcludedAncestors());
+        // The default scope of a pattern is not pushed down
+        assertNull(FilterDependencySelector.compile(new NotFilter(new AncestorFilter("org.foo:bar"))));
+        // Includes and exclusions on the coordinates are not pushed down
+        assertNull(FilterDependencySelector.compile(new GroupIdFilter("org.nuxeo*")));
+        assertNull(FilterDependencySelector.compile(new NotFilter(new GroupIdFilter("org.baz"))));
+        assertNull(FilterDependencySelector.compile(ancestor));
+        // Excluding "ancestor and groupId": the descendants of another group are accepted
+        assertNull(FilterDependencySelector.compile(new NotFilter(
+                new AndFilter(Arrays.<Filter> asList(ancestor, new GroupIdFilter("org.baz"))))));
+    }
+
+    @Test
+    public void testSameResults() throws Exception {
+        final DependencyNode root = newNode("org.nuxeo:app:1.0",
+                newNode("org.foo:bar:1.0", newNode("org.nuxeo:x:1.0", newNode("org.nuxeo:y:1.0")),
+                        newNode("org.baz:z:1.0")),
+                newNode("org.nuxeo:a:1.0", newNode("org.foo:bar2:1.0")),
+                newNode("org.baz:c:1.0", newNode("org.nuxeo:d:1.0")));
+        final AndFilter filter = new AndFilter();
+        filter.addFilter(new NotFilter(new OrFilter(Arrays.<Filter> asList(new AncestorFilter(
+                "org.foo:bar:*:*:*:*")))));
+        filter.addFilter(new NotFilter(new GroupIdFilter("org.baz")));
+        filter.addFilter(new GroupIdFilter("org.nuxeo*"));
+        executor.submit(new Callable<Void>() {
+            @Override
+            public Void call() {
+                DependencyNode collected = collect(root, FilterDependencySelector.compile(filter));
+                assertEquals(9, count(root));
+                assertEquals(6, count(collected));
+                List<String> expected = new ArrayList<>();
+                for (DependencyNode node : accepted(root, filter)) {
+                    expected.add(node.getArtifact().toString());
+                }
+                List<String> actual = new ArrayList<>();
+                for (DependencyNode node : accepted(collected, filter)) {
+                    actual.add(node.getArtifact().toString());
+                }
+                assertEquals(Arrays.asList("org.nuxeo:app:jar:1.0", "org.nuxeo:a:jar:1.0", "org.nuxeo:d:jar:1.0"),
+                        expected);
+                assertEquals(expected, actual);
+                return null;
+            }
+        }).get();
+    }
+
+}
@@ -0,0 +1,221 @@
+/*
+ * (C) Copyright 2017 Nuxeo SA (http://nuxeo.com/) and contributors.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser General Public License
+ * (LGPL) version 2.1 which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/lgpl-2.1.html
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ */
+
+package org.nuxeo.build.maven.graph;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+
+import org.eclipse.aether.DefaultRepositorySystemSession;
+import org.eclipse.aether.RepositorySystem;
+import org.eclipse.aether.artifact.Artifact;
+import org.eclipse.aether.artifact.DefaultArtifact;
+import org.eclipse.aether.graph.Dependency;
+import org.eclipse.aether.graph.DependencyFilter;
+import org.eclipse.aether.graph.DependencyNode;
+import org.eclipse.aether.graph.Exclusion;
+import org.eclipse.aether.resolution.ArtifactRequest;
+import org.eclipse.aether.resolution.ArtifactResolutionException;
+import org.eclipse.aether.resolution.ArtifactResult;
+import org.eclipse.aether.transfer.ArtifactNotFoundException;
+import org.eclipse.aether.util.graph.visitor.FilteringDependencyVisitor;
+import org.eclipse.aether.util.graph.visitor.PreorderNodeListGenerator;
+import org.junit.Test;
+
+import org.nuxeo.build.maven.AntBuildMojo;
+import org.nuxeo.build.maven.filter.Filter;
+
+public class DependencyUtilsTest extends GraphTestSupport {
+
+    /**
+     * Mojo which repository system resolves the artifacts to a file named after them, except the "missing" ones, and
+     * records the requested artifacts.
+     */
+    private static class ResolvingMojo extends AntBuildMojo {
+
+        final List<String> requested = Collections.synchronizedList(new ArrayList<String>());
+
+        ResolvingMojo() {
+            session = new DefaultRepositorySystemSession();
+            remoteRepositories = Collections.emptyList();
+            system = (RepositorySystem) Proxy.newProxyInstance(getClass().getClassLoader(),
+                    new Class<?>[] { RepositorySystem.class }, new InvocationHandler() {
+                        @Override
+                        public Object invoke(Object proxy, Method method, Object[] args) throws Exception {
+                            if ("resolveArtifact".equals(method.getName())) {
+                                ArtifactResult result = resolve((ArtifactRequest) args[1]);
+                                if (!result.isResolved()) {
+                                    throw new ArtifactResolutionException(Collections.singletonList(result));
+                                }
+                                return result;
+                            } else if ("resolveArtifacts".equals(method.getName())) {
+                                List<ArtifactResult> results = new ArrayList<>();
+                                boolean failed = false;
+                                for (Object request : (Collection<?>) args[1]) {
+                                    ArtifactResult result = resolve((ArtifactRequest) request);
+                                    failed |= !result.isResolved();
+                                    results.add(result);
+                                }
+                                if (failed) {
+                                    throw new ArtifactResolutionException(results);
+                                }
+                                return results;
+                            }
+                            throw new UnsupportedOperationException(method.getName());
+                        }
+                    });
+        }
+
+        ArtifactResult resolve(ArtifactRequest request) {
+            Artifact artifact = request.getArtifact();
+            requested.add(artifact.getArtifactId());
+            ArtifactResult result = new ArtifactResult(request);
+            if ("missing".equals(artifact.getArtifactId())) {
+                result.addException(new ArtifactNotFoundException(artifact, null));
+            } else {
+                result.setArtifact(artifact.setFile(new File(artifact.getArtifactId() + ".jar")));
+            }
+            return result;
+        }
+
+        <T> T call(Callable<T> callable) throws Exception {
+            ExecutorService executor = newExecutor(1, "test");
+            try {
+                return executor.submit(callable).get();
+            } finally {
+                executor.shutdown();
+            }
+        }
+    }
+
+    private static List<String> accepted(DependencyNode root, DependencyFilter filter) {
+        PreorderNodeListGenerator generator = new PreorderNodeListGenerator();
+        root.accept(new FilteringDependencyVisitor(generator, filter));
+        List<String> artifactIds = new ArrayList<>();
+        for (DependencyNode node : generator.getNodes()) {
+            artifactIds.add(node.getArtifact().getArtifactId());
+        }
+        return artifactIds;
+    }
+
+    @Test
+    public void testDepthFilter() {
+        DependencyNode root = newNode("a", newNode("b", newNode("c", newNode("d"))), newNode("e"));
+        assertEquals(Arrays.asList("a"), accepted(root, DependencyUtils.newDepthFilter(0)));
+        assertEquals(Arrays.asList("a", "b", "e"), accepted(root, DependencyUtils.newDepthFilter(1)));
+        assertEquals(Arrays.asList("a", "b", "c", "e"), accepted(root, DependencyUtils.newDepthFilter(2)));
+        // The depth is relative to the resolved node
+        assertEquals(Arrays.asList("b", "c"), accepted(root.getChildren().get(0), DependencyUtils.newDepthFilter(1)));
+        // No depth filter without limit
+        Filter filter = Filter.ANY;
+        assertSame(filter, DependencyUtils.newDependencyFilter(filter, Integer.MAX_VALUE));
+    }
+
+    @Test
+    public void testManagedDependencies() {
+        Dependency managed = new Dependency(new DefaultArtifact("org.nuxeo:a:2.0"), "provided", true,
+                Collections.singletonList(new Exclusion("org.foo", "*", "*", "*")));
+        Dependency tests = new Dependency(new DefaultArtifact("org.nuxeo:a:jar:tests:3.0"), "test");
+        Dependency duplicate = new Dependency(new DefaultArtifact("org.nuxeo:a:4.0"), "compile");
+        Map<String, Dependency> index = DependencyUtils.indexManagedDependencies(Arrays.asList(managed, tests,
+                duplicate));
+        // Keyed by versionless ID, the first entry wins
+        assertEquals(2, index.size());
+        assertSame(managed, index.get("org.nuxeo:a:jar"));
+        assertSame(tests, index.get("org.nuxeo:a:jar:tests"));
+        assertNull(index.get("org.nuxeo:a:zip"));
+
+        Dependency dependency = DependencyUtils.applyManagement(new Dependency(new DefaultArtifact("org.nuxeo:a:1.0"),
+                "compile"), managed);
+        assertEquals("2.0", dependency.getArtifact().getVersion());
+        assertEquals("provided", dependency.getScope());
+        assertTrue(dependency.isOptional());
+        assertEquals(managed.getExclusions(), dependency.getExclusions());
+        // Unset management values are kept from the dependency
+        dependency = DependencyUtils.applyManagement(new Dependency(new DefaultArtifact("org.nuxeo:a:1.0"),
+                "compile", false), new Dependency(new DefaultArtifact("org.nuxeo", "a", "jar", ""), ""));
+        assertEquals("1.0", dependency.getArtifact().getVersion());
+        assertEquals("compile", dependency.getScope());
+        assertFalse(dependency.isOptional());
+    }
+
+    @Test
+    public void testResolveAll() throws Exception {
+        final ResolvingMojo mojo = new ResolvingMojo();
+        final List<Artifact> artifacts = Arrays.<Artifact> asList(new DefaultArtifact("org.nuxeo:a:1.0"),
+                new DefaultArtifact("org.nuxeo:b:1.0").setFile(new File("b.jar")),
+                new DefaultArtifact("org.nuxeo:missing:1.0"), new DefaultArtifact("org.nuxeo:d:1.0"),
+                new DefaultArtifact("org.nuxeo:e:1.0").setFile(new File("e.jar")));
+        for (final int parallelism : new int[] { 1, 2 }) {
+            mojo.requested.clear();
+            List<ArtifactResult> results = mojo.call(new Callable<List<ArtifactResult>>() {
+                @Override
+                public List<ArtifactResult> call() {
+                    return DependencyUtils.resolveAll(artifacts, parallelism);
+                }
+            });
+            // In the order of the artifacts, the ones with a file are not requested
+            List<String> files = new ArrayList<>();
+            for (ArtifactResult result : results) {
+                files.add(result.isResolved() ? result.getArtifact().getFile().getName() : null);
+            }
+            assertEquals(Arrays.asList("a.jar", "b.jar", null, "d.jar", "e.jar"), files);
+            // Batches may be resolved in any order
+            assertEquals(new HashSet<>(Arrays.asList("a", "missing", "d")), new HashSet<>(mojo.requested));
+            assertEquals(3, mojo.requested.size());
+            String failures = DependencyUtils.getFailures(results);
+            assertTrue(failures, failures.startsWith("Cannot resolve 1 artifact(s) out of 5:\n  org.nuxeo:missing"));
+        }
+    }
+
+    @Test
+    public void testPrintCollectedNode() throws Exception {
+        ResolvingMojo mojo = new ResolvingMojo();
+        final DependencyNode node = newNode("a");
+        final FlatPrinterDependencyVisitor printer = new FlatPrinterDependencyVisitor(new ByteArrayOutputStream(), 1,
+                null);
+        for (int i = 0; i < 2; i++) {
+            String line = mojo.call(new Callable<String>() {
+                @Override
+                public String call() {
+                    return printer.toString(node);
+                }
+            });
+            assertEquals("a.jar=org.nuxeo:a:1.0:jar::compile", line);
+        }
+        // Resolved once, kept on the node
+        assertEquals(Arrays.asList("a"), mojo.requested);
+        assertEquals("a.jar", node.getArtifact().getFile().getName());
+    }
+
+}
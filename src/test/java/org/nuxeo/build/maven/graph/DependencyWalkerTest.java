@@ -0,0 +1,77 @@
+/*
+ * (C) Copyright 2017 Nuxeo SA (http://nuxeo.com/) and contributors.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser General Public License
+ * (LGPL) version 2.1 which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/lgpl-2.1.html
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ */
+
+package org.nuxeo.build.maven.graph;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.aether.graph.DefaultDependencyNode;
+import org.eclipse.aether.graph.DependencyNode;
+import org.eclipse.aether.graph.DependencyVisitor;
+import org.junit.Test;
+
+public class DependencyWalkerTest extends GraphTestSupport {
+
+    /**
+     * Records the calls; does not enter "skip" and stops its siblings after leaving "stop".
+     */
+    private static class RecordingVisitor implements DependencyVisitor {
+
+        final List<String> calls = new ArrayList<>();
+
+        @Override
+        public boolean visitEnter(DependencyNode node) {
+            calls.add("+" + node.getArtifact().getArtifactId());
+            return !"skip".equals(node.getArtifact().getArtifactId());
+        }
+
+        @Override
+        public boolean visitLeave(DependencyNode node) {
+            calls.add("-" + node.getArtifact().getArtifactId());
+            return !"stop".equals(node.getArtifact().getArtifactId());
+        }
+    }
+
+    @Test
+    public void testSameCallsAsAccept() {
+        DependencyNode shared = newNode("shared", newNode("leaf"));
+        DependencyNode root = newNode("root", newNode("a", shared), newNode("skip", newNode("hidden")),
+                newNode("b", newNode("stop"), newNode("unvisited")), shared);
+        RecordingVisitor expected = new RecordingVisitor();
+        root.accept(expected);
+        RecordingVisitor actual = new RecordingVisitor();
+        DependencyWalker.walk(new Node(null, root), actual);
+        assertEquals(expected.calls, actual.calls);
+    }
+
+    @Test
+    public void testDeepGraph() {
+        DefaultDependencyNode root = newNode("root");
+        DefaultDependencyNode node = root;
+        for (int i = 0; i < 100000; i++) {
+            DefaultDependencyNode child = newNode("n" + i);
+            node.getChildren().add(child);
+            node = child;
+        }
+        RecordingVisitor visitor = new RecordingVisitor();
+        DependencyWalker.walk(root, visitor);
+        assertEquals(200002, visitor.calls.size());
+        assertEquals("-root", visitor.calls.get(200001));
+    }
+
+}
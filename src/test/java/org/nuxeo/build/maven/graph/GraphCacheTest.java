@@ -0,0 +1,136 @@
+/*
+ * (C) Copyright 2017 Nuxeo SA (http://nuxeo.com/) and contributors.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser General Public License
+ * (LGPL) version 2.1 which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/lgpl-2.1.html
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ */
+
+package org.nuxeo.build.maven.graph;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.eclipse.aether.artifact.DefaultArtifact;
+import org.eclipse.aether.collection.CollectRequest;
+import org.eclipse.aether.graph.DefaultDependencyNode;
+import org.eclipse.aether.graph.Dependency;
+import org.eclipse.aether.graph.DependencyNode;
+import org.eclipse.aether.graph.Exclusion;
+import org.eclipse.aether.repository.RemoteRepository;
+import org.eclipse.aether.util.graph.manager.DependencyManagerUtils;
+import org.eclipse.aether.util.version.GenericVersionScheme;
+import org.junit.Test;
+
+public class GraphCacheTest extends GraphTestSupport {
+
+    private final RemoteRepository central = new RemoteRepository.Builder("central", "default",
+            "https://repo.maven.apache.org/maven2").build();
+
+    private CollectRequest newRequest() {
+        return new CollectRequest(new Dependency(new DefaultArtifact("org.nuxeo:root:1.0"), "compile"),
+                Collections.singletonList(central));
+    }
+
+    @Test
+    public void testEncodeDecode() throws Exception {
+        DefaultDependencyNode shared = new DefaultDependencyNode(new Dependency(new DefaultArtifact(
+                "org.nuxeo:shared:jar:tests:2.0"), "test", true));
+        shared.setVersion(new GenericVersionScheme().parseVersion("2.0"));
+        shared.setData(DependencyManagerUtils.NODE_DATA_PREMANAGED_VERSION, "1.9");
+        shared.setManagedBits(DependencyNode.MANAGED_VERSION);
+        shared.setRepositories(Collections.singletonList(central));
+        DefaultDependencyNode a = new DefaultDependencyNode(new Dependency(new DefaultArtifact("org.nuxeo:a:1.0"),
+                "compile", false, Arrays.asList(new Exclusion("org.excluded", "*", "*", "*"))));
+        a.setChildren(Arrays.<DependencyNode> asList(shared));
+        DefaultDependencyNode root = new DefaultDependencyNode(new Dependency(new DefaultArtifact(
+                "org.nuxeo:root:1.0"), "compile"));
+        root.setRequestContext("AAMP graph");
+        root.setChildren(Arrays.<DependencyNode> asList(a, shared));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        GraphCache.encode(out, "fingerprint", root);
+        CollectRequest request = newRequest();
+        assertNull(GraphCache.decode(out.toByteArray(), "other", request));
+        DependencyNode copy = GraphCache.decode(out.toByteArray(), "fingerprint", request);
+
+        assertEquals("AAMP graph", copy.getRequestContext());
+        assertEquals(2, copy.getChildren().size());
+        DependencyNode copyA = copy.getChildren().get(0);
+        assertEquals(a.getDependency(), copyA.getDependency());
+        DependencyNode copyShared = copy.getChildren().get(1);
+        assertSame(copyShared, copyA.getChildren().get(0));
+        assertEquals(shared.getDependency(), copyShared.getDependency());
+        assertEquals("2.0", copyShared.getVersion().toString());
+        assertEquals("1.9", DependencyManagerUtils.getPremanagedVersion(copyShared));
+        assertEquals(DependencyNode.MANAGED_VERSION, copyShared.getManagedBits());
+        assertSame(central, copyShared.getRepositories().get(0));
+    }
+
+    @Test
+    public void testStorable() throws Exception {
+        DefaultDependencyNode root = new DefaultDependencyNode(new DefaultArtifact("org.nuxeo:root:1.0-SNAPSHOT"));
+        DefaultDependencyNode child = new DefaultDependencyNode(new Dependency(new DefaultArtifact(
+                "org.nuxeo:a:1.0"), "compile"));
+        root.setChildren(Arrays.<DependencyNode> asList(child));
+        assertTrue(GraphCache.isStorable(root));
+        child.setVersionConstraint(new GenericVersionScheme().parseVersionConstraint("[1.0,2.0)"));
+        assertFalse(GraphCache.isStorable(root));
+        child.setVersionConstraint(new GenericVersionScheme().parseVersionConstraint("1.0"));
+        child.setArtifact(new DefaultArtifact("org.nuxeo:a:1.1-SNAPSHOT"));
+        assertFalse(GraphCache.isStorable(root));
+    }
+
+    @Test
+    public void testMissingFileNotRestored() throws Exception {
+        DefaultDependencyNode root = new DefaultDependencyNode(new DefaultArtifact("org.nuxeo", "root", null, "jar",
+                "1.0", null, new File("/nonexistent/root-1.0.jar")));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        GraphCache.encode(out, "fingerprint", root);
+        assertNull(GraphCache.decode(out.toByteArray(), "fingerprint", newRequest()).getArtifact().getFile());
+    }
+
+    @Test
+    public void testSharedCacheEviction() {
+        SharedGraphCache cache = new SharedGraphCache(400);
+        CollectRequest request = newRequest();
+        for (int i = 0; i < 10; i++) {
+            cache.store(request, "fingerprint" + i, new DefaultDependencyNode(new DefaultArtifact("org.nuxeo:a" + i
+                    + ":1.0")));
+        }
+        // Oldest graphs have been evicted to stay under the size limit
+        assertNull(cache.load(request, "fingerprint0"));
+        assertFalse(cache.toString().contains(" 0 eviction(s)"));
+    }
+
+    @Test
+    public void testSharedCacheHits() {
+        SharedGraphCache cache = new SharedGraphCache(4096);
+        CollectRequest dependencyRequest = newRequest();
+        CollectRequest projectRequest = new CollectRequest();
+        projectRequest.setRootArtifact(new DefaultArtifact("org.nuxeo:module:1.0"));
+        cache.store(dependencyRequest, "dependency", new DefaultDependencyNode(new DefaultArtifact("org.nuxeo:a:1.0")));
+        cache.store(projectRequest, "project", new DefaultDependencyNode(new DefaultArtifact("org.nuxeo:module:1.0")));
+        assertNull(cache.load(dependencyRequest, "other"));
+        assertEquals("org.nuxeo:a:jar:1.0", cache.load(dependencyRequest, "dependency").getArtifact().toString());
+        assertEquals("org.nuxeo:module:jar:1.0", cache.load(projectRequest, "project").getArtifact().toString());
+        assertTrue(cache.toString(),
+                cache.toString().contains(" 2 hit(s) including 1 on dependency graphs, 1 miss(es)"));
+    }
+
+}
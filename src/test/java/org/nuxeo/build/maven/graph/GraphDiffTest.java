@@ -0,0 +1,45 @@
+/*
+ * (C) Copyright 2017 Nuxeo SA (http://nuxeo.com/) and contributors.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser General Public License
+ * (LGPL) version 2.1 which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/lgpl-2.1.html
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ */
+
+package org.nuxeo.build.maven.graph;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Test;
+
+public class GraphDiffTest {
+
+    @Test
+    public void testCompare() {
+        GraphDiff diff = GraphDiff.compare(Arrays.asList("org.nuxeo:a:1.0:jar::compile", "org.nuxeo:b:1.0:jar::compile",
+                "org.nuxeo:c:1.0:jar::compile", "org.nuxeo:d:1.0:jar:tests:test"), Arrays.asList(
+                "org.nuxeo:a:1.0:jar::compile", "org.nuxeo:b:1.1:jar::compile", "org.nuxeo:c:1.0:jar::runtime",
+                "org.nuxeo:d:1.0:jar::test"));
+        assertEquals(Collections.singletonList("org.nuxeo:d:1.0:jar::test"), diff.getAdded());
+        assertEquals(Collections.singletonList("org.nuxeo:d:1.0:jar:tests:test"), diff.getRemoved());
+        assertEquals(Collections.singletonMap("org.nuxeo:b:1.0:jar::compile", "org.nuxeo:b:1.1:jar::compile"),
+                diff.getVersionChanges());
+        assertEquals(Collections.singletonMap("org.nuxeo:c:1.0:jar::compile", "org.nuxeo:c:1.0:jar::runtime"),
+                diff.getScopeChanges());
+        assertTrue(GraphDiff.compare(diff.getAdded(), diff.getAdded()).isEmpty());
+        assertEquals("d-1.0-tests.jar", GraphDiff.getFileName("org.nuxeo:d:1.0:jar:tests:test"));
+        assertEquals("a-1.0.zip", GraphDiff.getFileName("org.nuxeo:a:1.0:zip::"));
+    }
+
+}
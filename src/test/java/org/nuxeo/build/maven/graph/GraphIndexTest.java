@@ -0,0 +1,107 @@
+/*
+ * (C) Copyright 2017 Nuxeo SA (http://nuxeo.com/) and contributors.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser General Public License
+ * (LGPL) version 2.1 which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/lgpl-2.1.html
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ */
+
+package org.nuxeo.build.maven.graph;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.util.Collections;
+
+import org.eclipse.aether.artifact.Artifact;
+import org.eclipse.aether.artifact.ArtifactProperties;
+import org.eclipse.aether.artifact.DefaultArtifact;
+import org.eclipse.aether.graph.DefaultDependencyNode;
+import org.eclipse.aether.graph.Dependency;
+import org.junit.Test;
+
+import org.nuxeo.build.maven.ArtifactDescriptor;
+
+public class GraphIndexTest {
+
+    private GraphIndex index = new GraphIndex();
+
+    private Node add(String coords) {
+        return add(new DefaultArtifact(coords));
+    }
+
+    private Node add(Artifact artifact) {
+        Node node = new Node(null, new DefaultDependencyNode(new Dependency(artifact, "compile")));
+        index.add(node);
+        return node;
+    }
+
+    private String find(String groupId, String artifactId, String version, String type, String classifier) {
+        Node node = index.find(new ArtifactDescriptor(groupId, artifactId, version, type, classifier));
+        return node != null ? node.getArtifact().toString() : null;
+    }
+
+    @Test
+    public void testHighestVersionFirst() {
+        add("org.nuxeo:a:1.9");
+        add("org.nuxeo:a:1.10");
+        add("org.other:a:1.10");
+        add("org.nuxeo:a:jar:tests:2.0");
+        add("org.nuxeo:b:zip:1.0");
+        assertEquals("org.other:a:jar:1.10", find(null, "a", null, null, null));
+        assertEquals("org.nuxeo:a:jar:1.10", find("org.nuxeo", "a", null, "jar", null));
+        assertEquals("org.nuxeo:a:jar:1.9", find(null, "a", "1.9", null, null));
+        assertEquals("org.nuxeo:a:jar:tests:2.0", find(null, "a", null, null, "tests"));
+        assertEquals("org.nuxeo:b:zip:1.0", find(null, null, null, "zip", null));
+        assertEquals("org.nuxeo:b:zip:1.0", find("org.nuxeo", null, null, "zip", null));
+        assertNull(find(null, "c", null, null, null));
+        assertFalse(GraphIndex.isIndexed(new ArtifactDescriptor(null, null, "1.0", null, null)));
+    }
+
+    @Test
+    public void testResolvedSnapshot() {
+        Node snapshot = add("org.nuxeo:a:1.1-SNAPSHOT");
+        add("org.nuxeo:a:1.0");
+        snapshot.setArtifact(new DefaultArtifact("org.nuxeo:a:1.1-20170101.120000-1"));
+        assertEquals("org.nuxeo:a:jar:1.1-20170101.120000-1", find(null, "a", "1.1-SNAPSHOT", null, null));
+        // Order unchanged by the resolution
+        assertEquals("org.nuxeo:a:jar:1.1-20170101.120000-1", find(null, "a", null, null, null));
+        add("org.nuxeo:a:1.05");
+        assertEquals("org.nuxeo:a:jar:1.05", find(null, "a", "1.05", null, null));
+        assertEquals("org.nuxeo:a:jar:1.05", find(null, "a", null, null, null));
+    }
+
+    @Test
+    public void testHighestUpdatedByAdditions() {
+        add("org.nuxeo:a:1.0");
+        assertEquals("org.nuxeo:a:jar:1.0", find(null, "a", null, null, null));
+        add("org.nuxeo:a:2.0");
+        add("org.nuxeo:a:1.5");
+        assertEquals("org.nuxeo:a:jar:2.0", find(null, "a", null, null, null));
+        // Equal versions: highest ID
+        add("org.other:a:2.0");
+        assertEquals("org.other:a:jar:2.0", find(null, "a", null, null, null));
+        // The highest one does not match: the others are compared
+        assertEquals("org.nuxeo:a:jar:2.0", find("org.nuxeo", "a", null, null, null));
+        assertEquals("org.nuxeo:a:jar:1.5", find(null, "a", "1.5", null, null));
+    }
+
+    @Test
+    public void testDependencyType() {
+        add(new DefaultArtifact("org.nuxeo", "a", "tests", "jar", "1.0", Collections.singletonMap(
+                ArtifactProperties.TYPE, "test-jar"), (File) null));
+        assertEquals("org.nuxeo:a:jar:tests:1.0", find(null, null, null, "test-jar", "tests"));
+        assertEquals("org.nuxeo:a:jar:tests:1.0", find(null, "a", null, "jar", "tests"));
+        assertEquals("org.nuxeo:a:jar:tests:1.0", find(null, "a", null, "test-jar", "tests"));
+    }
+
+}
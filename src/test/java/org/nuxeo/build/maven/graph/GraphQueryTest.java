@@ -0,0 +1,82 @@
+/*
+ * (C) Copyright 2017 Nuxeo SA (http://nuxeo.com/) and contributors.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser General Public License
+ * (LGPL) version 2.1 which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/lgpl-2.1.html
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ */
+
+package org.nuxeo.build.maven.graph;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Test;
+
+public class GraphQueryTest extends GraphTestSupport {
+
+    private final GraphStore store = new GraphStore();
+
+    private Node add(String artifactId, Node... children) {
+        Node node = newGraphNode(artifactId);
+        store.add(node);
+        int[] childIndexes = new int[children.length];
+        for (int i = 0; i < children.length; i++) {
+            childIndexes[i] = children[i].index;
+            store.addParent(children[i].index, node.index);
+        }
+        store.setChildren(node.index, childIndexes);
+        return node;
+    }
+
+    @Test
+    public void testQueries() {
+        // root -> a -> c -> d, root -> b -> c, orphan -> d
+        Node d = add("d");
+        Node c = add("c", d);
+        Node a = add("a", c);
+        Node b = add("b", c);
+        Node root = add("root", a, b);
+        Node orphan = add("orphan", d);
+        GraphQuery query = new GraphQuery(store, Collections.singletonList(root));
+
+        assertEquals(0, query.getDepth(root));
+        assertEquals(3, query.getDepth(d));
+        assertEquals(-1, query.getDepth(orphan));
+        assertEquals(Arrays.asList(root, a, c, d), query.getPath(d));
+        assertTrue(query.getPath(orphan).isEmpty());
+        assertEquals(Arrays.asList(a, b), query.getDependents(c));
+        assertEquals(Arrays.asList(c, a, b, root, orphan), query.getAllDependents(d));
+        assertEquals(Arrays.asList(d, c, b), query.getSubtree(b));
+        assertTrue(query.isInSubtree(a, d));
+        assertFalse(query.isInSubtree(a, b));
+        assertFalse(query.isInSubtree(orphan, c));
+    }
+
+    @Test
+    public void testCycle() {
+        // root -> a -> b -> a
+        Node a = add("a");
+        Node b = add("b", a);
+        store.setChildren(a.index, new int[] { b.index });
+        store.addParent(b.index, a.index);
+        Node root = add("root", a);
+        GraphQuery query = new GraphQuery(store, Collections.singletonList(root));
+
+        assertEquals(Arrays.asList(b, root), query.getAllDependents(a));
+        assertEquals(Arrays.asList(a, root), query.getAllDependents(b));
+        assertEquals(Arrays.asList(a, b), query.getSubtree(b));
+    }
+
+}
@@ -0,0 +1,98 @@
+/*
+ * (C) Copyright 2017 Nuxeo SA (http://nuxeo.com/) and contributors.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser General Public License
+ * (LGPL) version 2.1 which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/lgpl-2.1.html
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ */
+
+package org.nuxeo.build.maven.graph;
+
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.Arrays;
+
+import org.apache.tools.ant.BuildException;
+import org.junit.Test;
+
+import org.nuxeo.build.maven.filter.AndFilter;
+import org.nuxeo.build.maven.filter.ArtifactIdFilter;
+import org.nuxeo.build.maven.filter.Filter;
+import org.nuxeo.build.maven.filter.GroupIdFilter;
+
+public class GraphRegistryTest extends GraphTestSupport {
+
+    @Test
+    public void testKeys() {
+        GraphRegistry registry = new GraphRegistry(16);
+        Graph graph = new Graph();
+        registry.put("org.nuxeo:a", Filter.ANY, 1, graph);
+        assertSame(graph, registry.get("org.nuxeo:a", Filter.ANY, 1));
+        assertNull(registry.get("org.nuxeo:a", Filter.ANY, 2));
+        assertNull(registry.get("org.nuxeo:a", null, 1));
+        assertNull(registry.get("org.nuxeo:b", Filter.ANY, 1));
+    }
+
+    @Test
+    public void testFilterChangedAfterPut() {
+        GraphRegistry registry = new GraphRegistry(16);
+        Graph graph = new Graph();
+        AndFilter filter = new AndFilter(Arrays.<Filter> asList(new GroupIdFilter("org.nuxeo*")));
+        registry.put("org.nuxeo:a", filter, 0, graph);
+        // As an Ant set extends its expand filter on each computation
+        filter.addFilter(new ArtifactIdFilter("nuxeo-runtime"));
+        assertNull(registry.get("org.nuxeo:a", filter, 0));
+        assertSame(graph, registry.get("org.nuxeo:a",
+                new AndFilter(Arrays.<Filter> asList(new GroupIdFilter("org.nuxeo*"))), 0));
+    }
+
+    @Test
+    public void testEviction() {
+        GraphRegistry registry = new GraphRegistry(2);
+        Graph a = new Graph();
+        Graph b = new Graph();
+        registry.put("a", null, 0, a);
+        registry.put("b", null, 0, b);
+        // Least recently used: b
+        registry.get("a", null, 0);
+        registry.put("c", null, 0, new Graph());
+        assertSame(a, registry.get("a", null, 0));
+        assertNull(registry.get("b", null, 0));
+        // Disabled
+        registry = new GraphRegistry(0);
+        registry.put("a", null, 0, a);
+        assertNull(registry.get("a", null, 0));
+    }
+
+    @Test
+    public void testDropsDerivedGraphs() {
+        GraphRegistry registry = new GraphRegistry(16);
+        Graph source = new Graph();
+        Graph derived = new Graph();
+        Graph other = new Graph();
+        registry.put("org.nuxeo:a", Filter.ANY, 1, derived, source);
+        registry.put("org.nuxeo:b", Filter.ANY, 1, other);
+        registry.removeDerived(source);
+        assertNull(registry.get("org.nuxeo:a", Filter.ANY, 1));
+        assertSame(other, registry.get("org.nuxeo:b", Filter.ANY, 1));
+    }
+
+    @Test(expected = BuildException.class)
+    public void testNamedGraphs() {
+        GraphRegistry registry = new GraphRegistry(0);
+        Graph graph = new Graph();
+        registry.register("main", graph);
+        assertSame(graph, registry.get("main"));
+        assertSame(graph, registry.remove("main"));
+        registry.get("main");
+    }
+
+}
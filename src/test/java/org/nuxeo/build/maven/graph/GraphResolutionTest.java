@@ -0,0 +1,114 @@
+/*
+ * (C) Copyright 2017 Nuxeo SA (http://nuxeo.com/) and contributors.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser General Public License
+ * (LGPL) version 2.1 which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/lgpl-2.1.html
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ */
+
+package org.nuxeo.build.maven.graph;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.List;
+
+import org.apache.maven.artifact.Artifact;
+import org.eclipse.aether.artifact.DefaultArtifact;
+import org.eclipse.aether.graph.Dependency;
+import org.eclipse.aether.graph.DependencyNode;
+import org.junit.Test;
+
+import org.nuxeo.build.maven.filter.Filter;
+
+public class GraphResolutionTest extends GraphTestSupport {
+
+    /**
+     * Refuses the roots with the given artifact ID.
+     */
+    private static class ExcludeRootFilter implements Filter {
+
+        private final String artifactId;
+
+        ExcludeRootFilter(String artifactId) {
+            this.artifactId = artifactId;
+        }
+
+        @Override
+        public boolean accept(DependencyNode node, List<DependencyNode> parents) {
+            return !artifactId.equals(node.getArtifact().getArtifactId());
+        }
+
+        @Override
+        public boolean accept(Artifact artifact) {
+            return !artifactId.equals(artifact.getArtifactId());
+        }
+    }
+
+    @Test
+    public void testIncrementalResolution() {
+        Graph graph = new Graph();
+        graph.addRootNode(newNode("a", newNode("a1", newNode("a2"))));
+        graph.addRootNode(newNode("b", newNode("b1")));
+        assertEquals(5, graph.getNodes().size());
+
+        graph.resolveDependencies(Filter.ANY, 1, 1, true);
+        assertEquals(4, graph.getResolvedNodeCount());
+        assertEquals(0, graph.getReusedNodeCount());
+        // Same or lower depth: reused
+        graph.resolveDependencies(Filter.ANY, 1, 1, true);
+        graph.resolveDependencies(Filter.ANY, 0, 1, true);
+        assertEquals(4, graph.getResolvedNodeCount());
+        assertEquals(6, graph.getReusedNodeCount());
+        // Greater depth: resolved again
+        graph.resolveDependencies(Filter.ANY, 2, 1, true);
+        assertEquals(9, graph.getResolvedNodeCount());
+        // Resolved with Filter.ANY: covers the other filters; the refused root and its subtree are removed
+        graph.resolveDependencies(new ExcludeRootFilter("b"), 2, 1, true);
+        assertEquals(9, graph.getResolvedNodeCount());
+        assertEquals(9, graph.getReusedNodeCount());
+        assertEquals(1, graph.getRoots().size());
+        assertEquals(3, graph.getNodes().size());
+        assertNull(graph.getNode(new Dependency(new DefaultArtifact("org.nuxeo:b1:1.0"), "compile")));
+        // Accepted again by another filter
+        graph.resolveDependencies(Filter.ANY, 2, 1, true);
+        assertEquals(9, graph.getResolvedNodeCount());
+        assertEquals(2, graph.getRoots().size());
+        assertEquals(5, graph.getNodes().size());
+    }
+
+    @Test
+    public void testFilterNotCovered() {
+        Graph graph = new Graph();
+        graph.addRootNode(newNode("a", newNode("a1")));
+        Filter filter = new ExcludeRootFilter("b");
+        graph.resolveDependencies(filter, 1, 1, true);
+        graph.resolveDependencies(filter, 1, 1, true);
+        assertEquals(2, graph.getResolvedNodeCount());
+        assertEquals(2, graph.getReusedNodeCount());
+        graph.resolveDependencies(new ExcludeRootFilter("c"), 1, 1, true);
+        graph.resolveDependencies(Filter.ANY, 1, 1, true);
+        assertEquals(6, graph.getResolvedNodeCount());
+        assertEquals(2, graph.getNodes().size());
+    }
+
+    @Test
+    public void testSharedNodesCountedOnce() {
+        Graph graph = new Graph();
+        graph.addRootNode(newNode("a", newNode("c")));
+        graph.resolveDependencies(Filter.ANY, 1, 1, true);
+        graph.addRootNode(newNode("b", newNode("c")));
+        // "c" is resolved again with "b": not counted as reused
+        graph.resolveDependencies(Filter.ANY, 1, 1, true);
+        assertEquals(4, graph.getResolvedNodeCount());
+        assertEquals(1, graph.getReusedNodeCount());
+    }
+
+}
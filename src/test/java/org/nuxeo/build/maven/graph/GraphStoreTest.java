@@ -0,0 +1,114 @@
+/*
+ * (C) Copyright 2017 Nuxeo SA (http://nuxeo.com/) and contributors.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser General Public License
+ * (LGPL) version 2.1 which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/lgpl-2.1.html
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ */
+
+package org.nuxeo.build.maven.graph;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+public class GraphStoreTest extends GraphTestSupport {
+
+    @Test
+    public void testAddAndLookup() {
+        GraphStore store = new GraphStore();
+        Node a = newGraphNode("org.nuxeo:a:1.0");
+        Node b = newGraphNode("org.nuxeo:b:1.0");
+        int ia = store.add(a);
+        int ib = store.add(b);
+        assertEquals(ia, a.index);
+        assertEquals(ib, b.index);
+        assertEquals(ia, store.add(newGraphNode("org.nuxeo:a:1.0")));
+        assertSame(a, store.get(store.indexOf(a.getId())));
+        assertEquals(ib, store.indexOf(b.getDependencyNode()));
+        assertEquals(-1, store.indexOf(newGraphNode("org.nuxeo:a:1.0").getDependencyNode()));
+        assertEquals(-1, store.indexOf("org.nuxeo:c:1.0:jar::compile"));
+    }
+
+    @Test
+    public void testParentsAndRoots() {
+        GraphStore store = new GraphStore();
+        store.setRoot("org.nuxeo:a:1.0:jar::compile");
+        Node a = newGraphNode("org.nuxeo:a:1.0");
+        Node c = newGraphNode("org.nuxeo:c:1.0");
+        store.add(a);
+        assertTrue(store.isRoot(a.getId()));
+        assertFalse(store.contains(c.getId()));
+        for (int i = 0; i < 100; i++) {
+            Node b = newGraphNode("org.nuxeo:b" + i + ":1.0");
+            store.add(b);
+            store.addParent(b.index, a.index);
+            store.addParent(a.index, b.index);
+        }
+        store.add(c);
+        assertFalse(store.isRoot(c.getId()));
+        assertEquals(100, store.getParents(a.index).size());
+        assertEquals("org.nuxeo:b99:jar:1.0", store.getParents(a.index).get(99).getArtifact().toString());
+        // The view follows the added parents
+        assertSame(store.getParents(c.index), store.getParents(c.index));
+        store.addParent(c.index, a.index);
+        assertSame(a, store.getParents(c.index).get(0));
+        store.clear();
+        assertEquals(-1, a.index);
+        assertEquals(0, store.size());
+        assertFalse(store.isRoot(a.getId()));
+        // The views are dropped with the indexes
+        store.add(c);
+        assertEquals(0, store.getParents(c.index).size());
+    }
+
+    @Test
+    public void testRootsOrder() {
+        GraphStore store = new GraphStore();
+        Node b = newGraphNode("org.nuxeo:b:1.0");
+        Node a = newGraphNode("org.nuxeo:a:1.0");
+        store.add(b);
+        store.add(a);
+        store.setRoot(b.getId());
+        store.setRoot(a.getId());
+        store.setRoot(b.getId());
+        assertEquals(Arrays.asList(b, a), store.getRoots());
+        store.clear();
+        assertTrue(store.getRoots().isEmpty());
+    }
+
+    @Test
+    public void testSortedNodes() {
+        GraphStore store = new GraphStore();
+        Node b = newGraphNode("org.nuxeo:b:1.0");
+        Node a2 = newGraphNode("org.nuxeo:a:2.0");
+        Node a1 = newGraphNode("org.nuxeo:a:1.0");
+        Node ab = newGraphNode("org.nuxeo:ab:1.0");
+        store.add(b);
+        store.add(a2);
+        List<Node> sorted = store.getSortedNodes();
+        assertEquals(Arrays.asList(a2, b), sorted);
+        store.add(a1);
+        store.add(ab);
+        // Sorted again after the additions, the previous list is unchanged
+        assertEquals(Arrays.asList(a2, b), sorted);
+        assertEquals(Arrays.asList(a1, a2, ab, b), store.getSortedNodes());
+        assertEquals(Arrays.asList(a1, a2), store.getSortedNodes("org.nuxeo:a:", "org.nuxeo:a;"));
+        assertEquals(Arrays.asList(b), store.getSortedNodes("org.nuxeo:b:", "org.nuxeo:b;"));
+        assertTrue(store.getSortedNodes("org.nuxeo:c:", "org.nuxeo:c;").isEmpty());
+    }
+
+}
@@ -0,0 +1,65 @@
+/*
+ * (C) Copyright 2017 Nuxeo SA (http://nuxeo.com/) and contributors.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser General Public License
+ * (LGPL) version 2.1 which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/lgpl-2.1.html
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ */
+
+package org.nuxeo.build.maven.graph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import org.apache.tools.ant.Project;
+import org.eclipse.aether.artifact.DefaultArtifact;
+import org.eclipse.aether.graph.DefaultDependencyNode;
+import org.eclipse.aether.graph.Dependency;
+import org.eclipse.aether.graph.DependencyNode;
+import org.junit.After;
+import org.junit.Before;
+
+import org.nuxeo.build.ant.AntClient;
+
+/**
+ * Base of the graph tests: sets the Ant project the graph classes log to, and builds dependency trees.
+ */
+public abstract class GraphTestSupport {
+
+    @Before
+    public void setUpAntClient() {
+        AntClient.setInstance(new Project());
+    }
+
+    @After
+    public void tearDownAntClient() {
+        AntClient.setInstance(null);
+    }
+
+    /**
+     * @param artifact artifact coordinates, or only an artifact ID for "org.nuxeo:&lt;artifactId&gt;:1.0"
+     * @return a compile scope node with the given children
+     */
+    public static DefaultDependencyNode newNode(String artifact, DependencyNode... children) {
+        String coordinates = artifact.indexOf(':') < 0 ? "org.nuxeo:" + artifact + ":1.0" : artifact;
+        DefaultDependencyNode node = new DefaultDependencyNode(new Dependency(new DefaultArtifact(coordinates),
+                "compile"));
+        node.setChildren(new ArrayList<>(Arrays.asList(children)));
+        return node;
+    }
+
+    /**
+     * @return a graph node, not added to any graph, wrapping {@link #newNode(String, DependencyNode...)}
+     */
+    static Node newGraphNode(String artifact) {
+        return new Node(null, newNode(artifact));
+    }
+
+}
@@ -0,0 +1,50 @@
+/*
+ * (C) Copyright 2017 Nuxeo SA (http://nuxeo.com/) and contributors.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser General Public License
+ * (LGPL) version 2.1 which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/lgpl-2.1.html
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ */
+
+package org.nuxeo.build.maven.graph;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.io.File;
+
+import org.eclipse.aether.artifact.Artifact;
+import org.eclipse.aether.artifact.DefaultArtifact;
+import org.eclipse.aether.graph.Dependency;
+import org.junit.Test;
+
+public class InternPoolTest {
+
+    private InternPool pool = new InternPool();
+
+    @Test
+    public void testCanonicalInstances() {
+        Dependency dependency = pool.intern(new Dependency(new DefaultArtifact("org.nuxeo:a:1.0"), "compile"));
+        Dependency copy = new Dependency(new DefaultArtifact("org.nuxeo:a:1.0"), "compile");
+        assertEquals(dependency, copy);
+        assertSame(dependency, pool.intern(copy));
+        assertSame(dependency.getArtifact(), pool.intern(copy.getArtifact()));
+        assertSame(dependency.getArtifact().getGroupId(), pool.intern(new String("org.nuxeo")));
+        assertEquals(3, pool.getHits());
+
+        // Unequal objects are kept apart
+        assertNotSame(dependency, pool.intern(copy.setScope("test")));
+        Artifact resolved = copy.getArtifact().setFile(new File("a.jar"));
+        assertSame(resolved.getFile(), pool.intern(resolved).getFile());
+        assertNotSame(dependency.getArtifact(), pool.intern(resolved));
+    }
+
+}
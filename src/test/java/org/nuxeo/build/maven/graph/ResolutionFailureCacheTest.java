@@ -0,0 +1,103 @@
+/*
+ * (C) Copyright 2017 Nuxeo SA (http://nuxeo.com/) and contributors.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser General Public License
+ * (LGPL) version 2.1 which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/lgpl-2.1.html
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ */
+
+package org.nuxeo.build.maven.graph;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.eclipse.aether.artifact.Artifact;
+import org.eclipse.aether.artifact.DefaultArtifact;
+import org.eclipse.aether.repository.RemoteRepository;
+import org.eclipse.aether.resolution.ArtifactRequest;
+import org.eclipse.aether.resolution.ArtifactResult;
+import org.eclipse.aether.transfer.ArtifactNotFoundException;
+import org.eclipse.aether.transfer.ArtifactTransferException;
+import org.junit.Test;
+
+public class ResolutionFailureCacheTest {
+
+    private static class ClockCache extends ResolutionFailureCache {
+
+        long time;
+
+        @Override
+        protected long now() {
+            return time;
+        }
+    }
+
+    private static ArtifactResult failure(Artifact artifact, List<RemoteRepository> repositories) {
+        ArtifactResult result = new ArtifactResult(new ArtifactRequest(artifact, repositories, null));
+        result.addException(new ArtifactNotFoundException(artifact, null));
+        return result;
+    }
+
+    @Test
+    public void testFailures() {
+        ClockCache cache = new ClockCache();
+        cache.setTtl(1000);
+        List<RemoteRepository> repositories = Collections.singletonList(
+                new RemoteRepository.Builder("central", "default", "https://repo.maven.apache.org/maven2").build());
+        Artifact sources = new DefaultArtifact("org.nuxeo", "a", "sources", "jar", "1.0");
+        assertNull(cache.getFailure(sources, repositories));
+        cache.addFailure(failure(sources, repositories));
+        assertEquals(1, cache.getFailure(sources, repositories).size());
+        assertNull(cache.getFailure(new DefaultArtifact("org.nuxeo", "a", "jar", "1.0"), repositories));
+        assertNull(cache.getFailure(sources, Collections.<RemoteRepository> emptyList()));
+        cache.time = 1001;
+        assertNull(cache.getFailure(sources, repositories));
+        assertEquals(1, cache.getAvoided());
+    }
+
+    @Test
+    public void testOnlyNotFound() {
+        ClockCache cache = new ClockCache();
+        cache.setTtl(1000);
+        List<RemoteRepository> repositories = Collections.emptyList();
+        Artifact artifact = new DefaultArtifact("org.nuxeo", "a", "jar", "1.0");
+        ArtifactResult result = new ArtifactResult(new ArtifactRequest(artifact, repositories, null));
+        result.addException(new ArtifactTransferException(artifact, null, "Connection reset"));
+        cache.addFailure(result);
+        assertNull(cache.getFailure(artifact, repositories));
+    }
+
+    @Test
+    public void testFirstTtlWins() {
+        ClockCache cache = new ClockCache();
+        assertTrue(cache.setTtl(1000));
+        assertFalse(cache.setTtl(0));
+        List<RemoteRepository> repositories = Collections.emptyList();
+        Artifact artifact = new DefaultArtifact("org.nuxeo", "a", "jar", "1.0");
+        cache.addFailure(failure(artifact, repositories));
+        assertEquals(1, cache.getFailure(artifact, repositories).size());
+    }
+
+    @Test
+    public void testDisabled() {
+        ClockCache cache = new ClockCache();
+        List<RemoteRepository> repositories = Collections.emptyList();
+        Artifact artifact = new DefaultArtifact("org.nuxeo", "a", "jar", "1.0");
+        cache.addFailure(failure(artifact, repositories));
+        assertNull(cache.getFailure(artifact, repositories));
+        assertEquals(0, cache.getAvoided());
+    }
+
+}
@@ -0,0 +1,50 @@
+/*
+ * (C) Copyright 2017 Nuxeo SA (http://nuxeo.com/) and contributors.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser General Public License
+ * (LGPL) version 2.1 which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/lgpl-2.1.html
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ */
+
+package org.nuxeo.build.maven.graph;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import org.nuxeo.build.maven.filter.AndFilter;
+import org.nuxeo.build.maven.filter.ArtifactIdFilter;
+import org.nuxeo.build.maven.filter.Filter;
+import org.nuxeo.build.maven.filter.GroupIdFilter;
+import org.nuxeo.build.maven.filter.NotFilter;
+
+public class ResolutionMemoTest {
+
+    @Test
+    public void testFilterCopy() {
+        GroupIdFilter groupId = new GroupIdFilter("org.nuxeo*");
+        ArtifactIdFilter artifactId = new ArtifactIdFilter("nuxeo-runtime");
+        AndFilter filter = new AndFilter(Arrays.<Filter> asList(groupId, new NotFilter(artifactId)));
+        Object copy = ResolutionMemo.copy(filter);
+        // Same structure, whatever the order
+        assertEquals(copy, ResolutionMemo.copy(new AndFilter(Arrays.<Filter> asList(new NotFilter(artifactId),
+                groupId))));
+        assertEquals(copy.hashCode(), ResolutionMemo.copy(filter).hashCode());
+        // The copy does not follow the changes of the filter
+        filter.addFilter(new ArtifactIdFilter("nuxeo-core"));
+        assertFalse(copy.equals(ResolutionMemo.copy(filter)));
+        assertEquals(copy, ResolutionMemo.copy(new AndFilter(Arrays.<Filter> asList(groupId, new NotFilter(
+                artifactId)))));
+    }
+
+}
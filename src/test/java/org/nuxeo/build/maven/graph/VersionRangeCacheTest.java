@@ -0,0 +1,76 @@
+/*
+ * (C) Copyright 2017 Nuxeo SA (http://nuxeo.com/) and contributors.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser General Public License
+ * (LGPL) version 2.1 which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/lgpl-2.1.html
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ */
+
+package org.nuxeo.build.maven.graph;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.List;
+
+import org.eclipse.aether.artifact.Artifact;
+import org.eclipse.aether.artifact.DefaultArtifact;
+import org.eclipse.aether.repository.RemoteRepository;
+import org.junit.Test;
+
+public class VersionRangeCacheTest {
+
+    private static class CountingCache extends VersionRangeCache {
+
+        int requests;
+
+        @Override
+        protected String request(Artifact artifact, List<RemoteRepository> repositories) {
+            requests++;
+            return "1." + requests;
+        }
+    }
+
+    @Test
+    public void testMemoryCache() throws Exception {
+        CountingCache cache = new CountingCache();
+        List<RemoteRepository> repositories = Collections.emptyList();
+        assertEquals("1.1", cache.getNewestVersion(new DefaultArtifact("org.nuxeo", "a", "jar", ""), repositories));
+        assertEquals("1.1", cache.getNewestVersion(new DefaultArtifact("org.nuxeo", "a", "zip", ""), repositories));
+        assertEquals("1.2", cache.getNewestVersion(new DefaultArtifact("org.nuxeo", "b", "jar", ""), repositories));
+        assertEquals(2, cache.requests);
+    }
+
+    @Test
+    public void testDiskCache() throws Exception {
+        File directory = Files.createTempDirectory("versions").toFile();
+        try {
+            List<RemoteRepository> repositories = Collections.emptyList();
+            Artifact artifact = new DefaultArtifact("org.nuxeo", "a", "jar", "");
+            CountingCache cache = new CountingCache();
+            assertEquals("1.1", cache.getNewestVersion(artifact, repositories, directory, 60000));
+            CountingCache nextBuild = new CountingCache();
+            assertEquals("1.1", nextBuild.getNewestVersion(artifact, repositories, directory, 60000));
+            assertEquals(0, nextBuild.requests);
+            CountingCache expired = new CountingCache();
+            assertEquals("1.1", expired.getNewestVersion(artifact, repositories, directory, -1));
+            assertEquals(1, expired.requests);
+        } finally {
+            for (File file : directory.listFiles()) {
+                file.delete();
+            }
+            directory.delete();
+        }
+    }
+
+}